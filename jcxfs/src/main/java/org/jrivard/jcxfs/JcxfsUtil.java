@@ -33,9 +33,10 @@ public class JcxfsUtil implements AutoCloseable {
     private XodusFs xodusFs = null;
     private Fuse fuse = null;
 
-    public void start(final RuntimeParameters config, final Path fuseMountPoint) throws JcxfsException {
+    public void start(final RuntimeParameters config, final Path fuseMountPoint, final int fuseThreads)
+            throws JcxfsException {
         xodusFs = initXodusFs(config);
-        fuse = initFuseEnv(xodusFs, fuseMountPoint, config.readonly());
+        fuse = initFuseEnv(xodusFs, fuseMountPoint, config.readonly(), fuseThreads);
     }
 
     @Override
@@ -64,7 +65,8 @@ public class JcxfsUtil implements AutoCloseable {
         return XodusFsUtils.open(config);
     }
 
-    private static Fuse initFuseEnv(final XodusFs xodusFs, final Path fuseMountPoint, final boolean readonly)
+    private static Fuse initFuseEnv(
+            final XodusFs xodusFs, final Path fuseMountPoint, final boolean readonly, final int fuseThreads)
             throws JcxfsException {
         Objects.requireNonNull(fuseMountPoint);
 
@@ -86,8 +88,9 @@ public class JcxfsUtil implements AutoCloseable {
         final JcxfsFileSystem fuseOps = new JcxfsFileSystem(builder.errno(), xodusFs, readonly);
         try {
             final Fuse fuse = builder.build(fuseOps);
-            LOGGER.info(() -> "mounting at " + fuseMountPoint);
-            fuse.mount("jcxfs", fuseMountPoint, "-s");
+            final String[] mountFlags = fuseMountFlags(fuseThreads);
+            LOGGER.info(() -> "mounting at " + fuseMountPoint + " with flags " + String.join(" ", mountFlags));
+            fuse.mount("jcxfs", fuseMountPoint, mountFlags);
             LOGGER.info(() -> "mounted to " + fuseMountPoint + ", ready for bidness.");
             return fuse;
         } catch (final Exception e) {
@@ -95,4 +98,13 @@ public class JcxfsUtil implements AutoCloseable {
             throw new JcxfsException(e.getMessage());
         }
     }
+
+    static String[] fuseMountFlags(final int fuseThreads) {
+        if (fuseThreads <= 1) {
+            return new String[] {"-s"};
+        }
+
+        // multi-threaded loop; thread count options are consumed by libfuse (max_threads requires fuse 3.12+)
+        return new String[] {"-o", "max_threads=" + fuseThreads, "-o", "max_idle_threads=" + fuseThreads};
+    }
 }
@@ -27,6 +27,11 @@ import picocli.CommandLine;
 public class MountCommand extends AbstractCommandRunnable {
     private static final JcxfsLogger LOGGER = JcxfsLogger.getLogger(MountCommand.class);
 
+    private static final int MAX_THREADS = 256;
+
+    @CommandLine.Spec
+    CommandLine.Model.CommandSpec spec;
+
     @CommandLine.Mixin
     private XodusDbOptions commonOptions = new XodusDbOptions();
 
@@ -40,19 +45,39 @@ public class MountCommand extends AbstractCommandRunnable {
             description = "do not wait for keypress to exit")
     private boolean noexit;
 
+    @CommandLine.Option(
+            names = {"-threads"},
+            paramLabel = "threads",
+            defaultValue = "1",
+            description = "number of fuse worker threads, 1 mounts single-threaded")
+    public void setThreads(final int intValue) {
+        if (intValue < 1 || intValue > MAX_THREADS) {
+            throw new CommandLine.ParameterException(
+                    spec.commandLine(),
+                    "Invalid value '" + intValue + "' for option '-threads': value is not within 1-" + MAX_THREADS
+                            + " range.");
+        }
+        threads = intValue;
+    }
+
+    private int threads;
+
     public int execute(final CommandContext commandContext) throws Exception {
         LOGGER.trace(() -> "beginning mount command");
 
         final RuntimeParameters runtimeParameters = commonOptions.toRuntimeParams();
 
         final String readonlyText = runtimeParameters.readonly() ? " (readonly)" : "";
+        final String threadsText = threads > 1 ? " (" + threads + " threads)" : "";
         final String xodusPath = runtimeParameters.path().toString();
         final String mountPath = Path.of(fuseMountPath).toString();
 
         final JcxfsUtil jcxfsUtil = new JcxfsUtil();
 
-        jcxfsUtil.start(runtimeParameters, Path.of(fuseMountPath));
-        commandContext.consoleOutput().writeLine("mounted " + xodusPath + readonlyText + " at " + mountPath);
+        jcxfsUtil.start(runtimeParameters, Path.of(fuseMountPath), threads);
+        commandContext
+                .consoleOutput()
+                .writeLine("mounted " + xodusPath + readonlyText + threadsText + " at " + mountPath);
 
         if (noexit) {
             commandContext.consoleOutput().writeLine("waiting forever...");
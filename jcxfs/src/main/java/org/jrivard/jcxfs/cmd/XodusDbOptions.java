@@ -16,6 +16,8 @@
 
 package org.jrivard.jcxfs.cmd;
 
+import org.jrivard.jcxfs.xodusfs.Durability;
+import org.jrivard.jcxfs.xodusfs.PageCompression;
 import org.jrivard.jcxfs.xodusfs.RuntimeParameters;
 import picocli.CommandLine;
 
@@ -25,6 +27,10 @@ import static picocli.CommandLine.Spec.Target.MIXEE;
 
 @CommandLine.Command(mixinStandardHelpOptions = false) // add --help and --version to all commands that have this mixin
 public class XodusDbOptions {
+    private static final int MAX_PAGE_CACHE_MEGABYTES = 64 * 1024;
+    private static final int MAX_WRITE_BACK_KILOBYTES = 64 * 1024;
+    private static final int MAX_INLINE_BYTES = 64 * 1024;
+
     @CommandLine.Spec(MIXEE)
     CommandLine.Model.CommandSpec mixee;
 
@@ -55,9 +61,93 @@ public class XodusDbOptions {
 
     private int utilization;
 
+    @CommandLine.Option(
+            names = {"-pagecache"},
+            paramLabel = "pagecache",
+            defaultValue = "64",
+            description = "decrypted data page cache size in megabytes, 0 disables the cache")
+    public void setPageCacheMegabytes(final int intValue) {
+        if (intValue < 0 || intValue > MAX_PAGE_CACHE_MEGABYTES) {
+            throw new CommandLine.ParameterException(
+                    mixee.commandLine(),
+                    "Invalid value '" + intValue + "' for option '-pagecache': value is not within 0-"
+                            + MAX_PAGE_CACHE_MEGABYTES + " range.");
+        }
+        pageCacheMegabytes = intValue;
+    }
+
+    private int pageCacheMegabytes;
+
+    @CommandLine.Option(
+            names = {"-writeback"},
+            paramLabel = "writeback",
+            defaultValue = "0",
+            description = "per file write-back buffer size in kilobytes, 0 commits every write immediately")
+    public void setWriteBackKilobytes(final int intValue) {
+        if (intValue < 0 || intValue > MAX_WRITE_BACK_KILOBYTES) {
+            throw new CommandLine.ParameterException(
+                    mixee.commandLine(),
+                    "Invalid value '" + intValue + "' for option '-writeback': value is not within 0-"
+                            + MAX_WRITE_BACK_KILOBYTES + " range.");
+        }
+        writeBackKilobytes = intValue;
+    }
+
+    private int writeBackKilobytes;
+
+    @CommandLine.Option(
+            names = {"-durability"},
+            paramLabel = "durability",
+            defaultValue = "async",
+            description = "when commits are forced to disk: async (never), flush (on application fsync), "
+                    + "sync (every commit)")
+    private Durability durability;
+
+    @CommandLine.Option(
+            names = {"-inline"},
+            paramLabel = "inline",
+            defaultValue = "" + RuntimeParameters.DEFAULT_INLINE_DATA_BYTES,
+            description = "files up to this many bytes are stored inline with their length instead of in data pages, "
+                    + "limited to the page size, 0 disables inlining")
+    public void setInlineBytes(final int intValue) {
+        if (intValue < 0 || intValue > MAX_INLINE_BYTES) {
+            throw new CommandLine.ParameterException(
+                    mixee.commandLine(),
+                    "Invalid value '" + intValue + "' for option '-inline': value is not within 0-" + MAX_INLINE_BYTES
+                            + " range.");
+        }
+        inlineBytes = intValue;
+    }
+
+    private int inlineBytes;
+
+    @CommandLine.Option(
+            names = {"-dedup"},
+            paramLabel = "dedup",
+            defaultValue = "false",
+            description = "store each distinct data page once, identical pages written to any file share a copy")
+    private boolean dedup;
+
+    @CommandLine.Option(
+            names = {"-compression"},
+            paramLabel = "compression",
+            defaultValue = "off",
+            description = "data page compression: off, fast (deflate fastest level), small (deflate default level), "
+                    + "pages that do not shrink are always stored uncompressed")
+    private PageCompression compression;
+
     RuntimeParameters toRuntimeParams() throws org.jrivard.jcxfs.xodusfs.JcxfsException {
         return new RuntimeParameters(
-                Path.of(dbPath), passwordOptionSubCommand.effectivePassword(), utilization, readonly);
+                Path.of(dbPath),
+                passwordOptionSubCommand.effectivePassword(),
+                utilization,
+                readonly,
+                pageCacheMegabytes * 1024L * 1024L,
+                writeBackKilobytes * 1024,
+                durability,
+                inlineBytes,
+                dedup,
+                compression);
     }
 
     @CommandLine.ArgGroup(multiplicity = "0..1", exclusive = true)
@@ -31,6 +31,8 @@ public enum ErrorMapper {
     DIR_NOT_EMPTY(FileOpError.DIR_NOT_EMPTY, Errno::enotempty),
     IO_ERROR(FileOpError.IO_ERROR, Errno::eio),
     FILE_EXISTS(FileOpError.FILE_EXISTS, Errno::eexist),
+    INVALID_ARGUMENT(FileOpError.INVALID_ARGUMENT, Errno::einval),
+    NOT_SUPPORTED(FileOpError.NOT_SUPPORTED, Errno::enotsup),
     ;
 
     private static final Set<ErrorMapper> ALL_ERRORMAPPERS = EnumSet.allOf(ErrorMapper.class);
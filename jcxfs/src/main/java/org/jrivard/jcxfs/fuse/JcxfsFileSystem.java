@@ -16,17 +16,18 @@
 
 package org.jrivard.jcxfs.fuse;
 
-import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
-import java.util.stream.Stream;
 import org.cryptomator.jfuse.api.DirFiller;
 import org.cryptomator.jfuse.api.Errno;
 import org.cryptomator.jfuse.api.FileInfo;
@@ -38,7 +39,10 @@ import org.cryptomator.jfuse.api.Statvfs;
 import org.cryptomator.jfuse.api.TimeSpec;
 import org.jetbrains.annotations.Nullable;
 import org.jrivard.jcxfs.JcxfsLogger;
+import org.jrivard.jcxfs.xodusfs.DirectoryEntry;
+import org.jrivard.jcxfs.xodusfs.FileHandle;
 import org.jrivard.jcxfs.xodusfs.FileOpException;
+import org.jrivard.jcxfs.xodusfs.FileStat;
 import org.jrivard.jcxfs.xodusfs.InodeEntry;
 import org.jrivard.jcxfs.xodusfs.StatfsInfo;
 import org.jrivard.jcxfs.xodusfs.XodusFs;
@@ -47,6 +51,23 @@ public class JcxfsFileSystem implements FuseOperations {
 
     private static final JcxfsLogger LOGGER = JcxfsLogger.getLogger(JcxfsFileSystem.class);
 
+    private static final long DOT_OFFSET = 1;
+    private static final long DOT_DOT_OFFSET = 2;
+    private static final int READDIR_BATCH_SIZE = 256;
+
+    /**
+     * Extended attribute exposing {@link InodeEntry#noCompress()}: while present on a file, its pages are written
+     * uncompressed.  The value is ignored on set and reads back as "1".
+     */
+    private static final String NO_COMPRESS_XATTR = "user.jcxfs.nocompress";
+
+    private static final byte[] NO_COMPRESS_XATTR_VALUE = "1".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NO_COMPRESS_XATTR_LIST = (NO_COMPRESS_XATTR + '\0').getBytes(StandardCharsets.UTF_8);
+
+    // setxattr(2) flags
+    private static final int XATTR_CREATE = 1;
+    private static final int XATTR_REPLACE = 2;
+
     private final Errno errno;
 
     private final XodusFs xodusFs;
@@ -54,6 +75,9 @@ public class JcxfsFileSystem implements FuseOperations {
 
     private final Set<Operation> SUPPORTED_OPERATIONS;
 
+    private final ConcurrentMap<Long, FileHandle> openFiles = new ConcurrentHashMap<>();
+    private final AtomicLong lastFileHandle = new AtomicLong();
+
     public JcxfsFileSystem(final Errno errno, final XodusFs xodusFs, final boolean readonly) {
         this.errno = errno;
         this.readonly = readonly;
@@ -78,7 +102,11 @@ public class JcxfsFileSystem implements FuseOperations {
                 Operation.READ_DIR,
                 Operation.READLINK,
                 Operation.STATFS,
-                Operation.READ);
+                Operation.OPEN,
+                Operation.RELEASE,
+                Operation.READ,
+                Operation.GET_XATTR,
+                Operation.LIST_XATTR);
 
         if (!readonly) {
             theSet.addAll(EnumSet.of(
@@ -88,11 +116,16 @@ public class JcxfsFileSystem implements FuseOperations {
                     Operation.MKDIR,
                     Operation.RMDIR,
                     Operation.WRITE,
+                    Operation.FLUSH,
+                    Operation.FSYNC,
+                    Operation.FSYNCDIR,
                     Operation.CREATE,
                     Operation.CHOWN,
                     Operation.CHMOD,
                     Operation.UNLINK,
-                    Operation.UTIMENS));
+                    Operation.UTIMENS,
+                    Operation.SET_XATTR,
+                    Operation.REMOVE_XATTR));
         }
 
         return Set.copyOf(theSet);
@@ -102,34 +135,36 @@ public class JcxfsFileSystem implements FuseOperations {
     public int getattr(final String path, final Stat stat, final FileInfo fi) {
         return doOp(
                 () -> {
-                    final Optional<InodeEntry> optionalDirectoryEntry = xodusFs.readAttrs(path);
-                    if (optionalDirectoryEntry.isEmpty()) {
+                    final Optional<FileStat> optionalFileStat = xodusFs.stat(path);
+                    if (optionalFileStat.isEmpty()) {
                         return -errno.enoent();
                     }
 
-                    final InodeEntry entryAttrs = optionalDirectoryEntry.get();
-                    stat.aTime().set(entryAttrs.aTime());
-                    stat.cTime().set(entryAttrs.cTime());
-                    stat.mTime().set(entryAttrs.mTime());
-                    stat.birthTime().set(entryAttrs.bTime());
-                    // stat.setGid();
-                    // stat.setUid();
-
-                    stat.setMode(entryAttrs.mode());
-
-                    if (entryAttrs.isDirectory()) {
-                        stat.setNLink((short) 2);
-                    } else if (entryAttrs.isFile()) {
-                        final long length = xodusFs.fileLength(path);
-                        stat.setNLink((short) 1);
-                        stat.setSize(length);
-                    }
-
+                    final FileStat fileStat = optionalFileStat.get();
+                    fillStat(stat, fileStat.inodeEntry(), fileStat.length());
                     return 0;
                 },
                 () -> "getattr() path=" + path);
     }
 
+    private static void fillStat(final Stat stat, final InodeEntry entryAttrs, final long length) {
+        stat.aTime().set(entryAttrs.aTime());
+        stat.cTime().set(entryAttrs.cTime());
+        stat.mTime().set(entryAttrs.mTime());
+        stat.birthTime().set(entryAttrs.bTime());
+        // stat.setGid();
+        // stat.setUid();
+
+        stat.setMode(entryAttrs.mode());
+
+        if (entryAttrs.isDirectory()) {
+            stat.setNLink((short) 2);
+        } else if (entryAttrs.isFile()) {
+            stat.setNLink((short) 1);
+            stat.setSize(length);
+        }
+    }
+
     @Override
     public void init(final FuseConnInfo conn, final FuseConfig cfg) {
         LOGGER.info(() -> "init() major=" + conn.protoMajor() + " minor=" + conn.protoMinor());
@@ -138,18 +173,29 @@ public class JcxfsFileSystem implements FuseOperations {
     @Override
     public void destroy() {
         LOGGER.info(() -> "destroy()");
+        openFiles.values().forEach(FileHandle::close);
+        openFiles.clear();
     }
 
     @Override
     public int open(final String path, final FileInfo fi) {
-        LOGGER.debug(() -> "open() path=" + path);
-        return 0;
+        return doOp(
+                () -> {
+                    fi.setFh(registerFileHandle(xodusFs.openHandle(xodusFs.lookup(path))));
+                    return 0;
+                },
+                () -> "open() path=" + path);
     }
 
     @Override
     public int read(final String path, final ByteBuffer buf, final long size, final long offset, final FileInfo fi) {
         return doOp(
-                () -> xodusFs.read(path, buf, size, offset),
+                () -> {
+                    final FileHandle fileHandle = fileHandle(fi);
+                    return fileHandle != null
+                            ? fileHandle.read(buf, size, offset)
+                            : xodusFs.read(path, buf, size, offset);
+                },
                 () -> "read() path=" + path + " buf=" + buf + " size=" + size + " offset=" + offset);
     }
 
@@ -157,26 +203,121 @@ public class JcxfsFileSystem implements FuseOperations {
     public int truncate(final String path, final long size, @Nullable final FileInfo fi) {
         return doOp(
                 () -> {
-                    xodusFs.truncate(path, size);
+                    final FileHandle fileHandle = fileHandle(fi);
+                    if (fileHandle != null) {
+                        fileHandle.truncate(size);
+                    } else {
+                        xodusFs.truncate(path, size);
+                    }
                     return 0;
                 },
                 () -> "truncate() path=" + path + " size=" + size);
     }
 
+    /**
+     * Declared by {@link org.cryptomator.jfuse.api.FuseOperations}, but jfuse 0.7.0 has no {@link Operation} for it
+     * and so never registers it with libfuse.  Ready for when a jfuse release binds it.
+     */
+    @Override
+    public int fallocate(
+            final String path, final int mode, final long offset, final long length, @Nullable final FileInfo fi) {
+        return doOp(
+                () -> {
+                    final FileHandle fileHandle = fileHandle(fi);
+                    if (fileHandle != null) {
+                        fileHandle.fallocate(mode, offset, length);
+                    } else {
+                        xodusFs.fallocate(xodusFs.lookup(path), mode, offset, length);
+                    }
+                    return 0;
+                },
+                () -> "fallocate() path=" + path + " mode=" + mode + " offset=" + offset + " length=" + length);
+    }
+
     @Override
     public int create(final String path, final int mode, final FileInfo fi) {
         return doOp(
                 () -> {
-                    xodusFs.createFileEntry(path, mode);
+                    final long nodeId = xodusFs.createFileEntry(path, mode);
+                    fi.setFh(registerFileHandle(xodusFs.openHandle(nodeId)));
                     return 0;
                 },
                 () -> "create() path=" + path + " mode=" + mode);
     }
 
+    @Override
+    public int flush(final String path, final FileInfo fi) {
+        return doOp(
+                () -> {
+                    // sent on every close, so only commit buffered writes; forcing them to disk is left to fsync
+                    final FileHandle fileHandle = fileHandle(fi);
+                    if (fileHandle != null) {
+                        fileHandle.commit();
+                    }
+                    return 0;
+                },
+                () -> "flush() path=" + path);
+    }
+
+    @Override
+    public int fsync(final String path, final int datasync, final FileInfo fi) {
+        return doOp(
+                () -> {
+                    final FileHandle fileHandle = fileHandle(fi);
+                    if (fileHandle != null) {
+                        fileHandle.flush();
+                    } else {
+                        xodusFs.sync();
+                    }
+                    return 0;
+                },
+                () -> "fsync() path=" + path + " datasync=" + datasync);
+    }
+
+    @Override
+    public int fsyncdir(final String path, final int datasync, final FileInfo fi) {
+        return doOp(
+                () -> {
+                    xodusFs.sync();
+                    return 0;
+                },
+                () -> "fsyncdir() path=" + path + " datasync=" + datasync);
+    }
+
     @Override
     public int release(final String path, final FileInfo fi) {
-        LOGGER.debug(() -> "release() path=" + path);
-        return 0;
+        final long fh = fi.getFh();
+        final FileHandle fileHandle = openFiles.remove(fh);
+        fi.setFh(0);
+        if (fileHandle == null) {
+            LOGGER.debug(() -> "release() path=" + path + " fh=" + fh);
+            return 0;
+        }
+
+        try (fileHandle) {
+            return doOp(
+                    () -> {
+                        fileHandle.commit();
+                        return 0;
+                    },
+                    () -> "release() path=" + path + " fh=" + fh);
+        }
+    }
+
+    private long registerFileHandle(final FileHandle fileHandle) {
+        final long fh = lastFileHandle.incrementAndGet();
+        openFiles.put(fh, fileHandle);
+        return fh;
+    }
+
+    /**
+     * File handles are registered during {@link #open(String, FileInfo)} and {@link #create(String, int, FileInfo)},
+     * so read/write operations do not need to resolve the path again and reads can be tracked per open file.
+     *
+     * @return the handle, or null if no handle is available.
+     */
+    private @Nullable FileHandle fileHandle(@Nullable final FileInfo fi) {
+        return fi == null ? null : openFiles.get(fi.getFh());
     }
 
     @Override
@@ -192,7 +333,12 @@ public class JcxfsFileSystem implements FuseOperations {
     @Override
     public int write(final String path, final ByteBuffer buf, final long count, final long offset, final FileInfo fi) {
         return doOp(
-                () -> xodusFs.writeFileData(path, buf, count, offset),
+                () -> {
+                    final FileHandle fileHandle = fileHandle(fi);
+                    return fileHandle != null
+                            ? fileHandle.write(buf, count, offset)
+                            : xodusFs.writeFileData(path, buf, count, offset);
+                },
                 () -> "write() path=" + path + ", buf=" + buf + ", count=" + count + ", offset=" + offset);
     }
 
@@ -222,44 +368,43 @@ public class JcxfsFileSystem implements FuseOperations {
         return 0;
     }
 
-    private class PathFiller implements Consumer<String> {
-        private final String path;
-        private final DirFiller filler;
-
-        public PathFiller(final String path, final DirFiller filler) {
-            this.path = path;
-            this.filler = filler;
-        }
-
-        @Override
-        public void accept(final String name) {
-            try {
-                final String fullPath = path + '/' + name;
-                filler.fill(name, stat -> getattr(fullPath, stat, null));
-            } catch (final IOException e) {
-                LOGGER.error(() -> "error while filling path: " + e.getMessage());
-            }
-        }
-    }
-
     @Override
     public int readdir(
             final String path, final DirFiller filler, final long offset, final FileInfo fi, final int flags) {
 
         return doOp(
                 () -> {
-                    try {
-                        filler.fill(".");
-                        filler.fill("..");
-                    } catch (final IOException e) {
-                        return -errno.eio();
+                    // directory offsets are cookies: "." and ".." use fixed values and each child uses its own
+                    // node id, which sorts the listing and stays stable while other entries come and go.
+                    if (offset < DOT_OFFSET && filler.fill(".", stat -> {}, DOT_OFFSET, 0) != 0) {
+                        return 0;
+                    }
+                    if (offset < DOT_DOT_OFFSET && filler.fill("..", stat -> {}, DOT_DOT_OFFSET, 0) != 0) {
+                        return 0;
                     }
 
-                    final var pathFiller = new PathFiller(path, filler);
-                    try (final Stream<String> subPaths = xodusFs.directoryListing(path)) {
-                        subPaths.forEach(pathFiller);
+                    // child attributes are read in the same transaction as the listing, so the kernel does not
+                    // need a getattr() round trip per entry.
+                    final int fillFlags = (flags & FUSE_READDIR_PLUS) != 0 ? DirFiller.FUSE_FILL_DIR_PLUS : 0;
+                    long cookie = Math.max(offset, DOT_DOT_OFFSET);
+                    while (true) {
+                        final List<DirectoryEntry> entries = xodusFs.readDirectory(path, cookie, READDIR_BATCH_SIZE);
+                        for (final DirectoryEntry entry : entries) {
+                            final int result = filler.fill(
+                                    entry.name(),
+                                    stat -> fillStat(stat, entry.inodeEntry(), entry.length()),
+                                    entry.nodeId(),
+                                    fillFlags);
+                            if (result != 0) {
+                                // reply buffer is full, the kernel resumes from the last accepted cookie
+                                return 0;
+                            }
+                            cookie = entry.nodeId();
+                        }
+                        if (entries.size() < READDIR_BATCH_SIZE) {
+                            return 0;
+                        }
                     }
-                    return 0;
                 },
                 () -> "readdir() path=" + path + " offset=" + offset);
     }
@@ -352,6 +497,100 @@ public class JcxfsFileSystem implements FuseOperations {
                 () -> "utimens() path=" + path);
     }
 
+    @Override
+    public int getxattr(final String path, final String name, final ByteBuffer value) {
+        return doOp(
+                () -> {
+                    final Optional<InodeEntry> optionalDirectoryEntry = xodusFs.readAttrs(path);
+                    if (optionalDirectoryEntry.isEmpty()) {
+                        return -errno.enoent();
+                    }
+                    if (!NO_COMPRESS_XATTR.equals(name)
+                            || !optionalDirectoryEntry.get().noCompress()) {
+                        return -errno.enodata();
+                    }
+                    return putXattrBytes(value, NO_COMPRESS_XATTR_VALUE);
+                },
+                () -> "getxattr() path=" + path + " name=" + name);
+    }
+
+    @Override
+    public int listxattr(final String path, final ByteBuffer list) {
+        return doOp(
+                () -> {
+                    final Optional<InodeEntry> optionalDirectoryEntry = xodusFs.readAttrs(path);
+                    if (optionalDirectoryEntry.isEmpty()) {
+                        return -errno.enoent();
+                    }
+                    if (!optionalDirectoryEntry.get().noCompress()) {
+                        return 0;
+                    }
+                    return putXattrBytes(list, NO_COMPRESS_XATTR_LIST);
+                },
+                () -> "listxattr() path=" + path);
+    }
+
+    @Override
+    public int setxattr(final String path, final String name, final ByteBuffer value, final int flags) {
+        return doOp(
+                () -> {
+                    final Optional<InodeEntry> optionalDirectoryEntry = xodusFs.readAttrs(path);
+                    if (optionalDirectoryEntry.isEmpty()) {
+                        return -errno.enoent();
+                    }
+
+                    final InodeEntry existingInode = optionalDirectoryEntry.get();
+                    if (!NO_COMPRESS_XATTR.equals(name) || !existingInode.isFile()) {
+                        return -errno.enotsup();
+                    }
+                    if ((flags & XATTR_CREATE) != 0 && existingInode.noCompress()) {
+                        return -errno.eexist();
+                    }
+                    if ((flags & XATTR_REPLACE) != 0 && !existingInode.noCompress()) {
+                        return -errno.enodata();
+                    }
+
+                    xodusFs.writeAttrs(path, existingInode.withNoCompress(true));
+                    return 0;
+                },
+                () -> "setxattr() path=" + path + " name=" + name + " flags=" + flags);
+    }
+
+    @Override
+    public int removexattr(final String path, final String name) {
+        return doOp(
+                () -> {
+                    final Optional<InodeEntry> optionalDirectoryEntry = xodusFs.readAttrs(path);
+                    if (optionalDirectoryEntry.isEmpty()) {
+                        return -errno.enoent();
+                    }
+
+                    final InodeEntry existingInode = optionalDirectoryEntry.get();
+                    if (!NO_COMPRESS_XATTR.equals(name) || !existingInode.noCompress()) {
+                        return -errno.enodata();
+                    }
+
+                    xodusFs.writeAttrs(path, existingInode.withNoCompress(false));
+                    return 0;
+                },
+                () -> "removexattr() path=" + path + " name=" + name);
+    }
+
+    /**
+     * Copies an attribute value or name list into the buffer supplied by the kernel.  A buffer without capacity is a
+     * size query and only gets the required length back.
+     */
+    private int putXattrBytes(final ByteBuffer buf, final byte[] bytes) {
+        if (buf.capacity() == 0) {
+            return bytes.length;
+        }
+        if (buf.remaining() < bytes.length) {
+            return -errno.erange();
+        }
+        buf.put(bytes);
+        return bytes.length;
+    }
+
     @Override
     public int rename(final String oldpath, final String newpath, final int flags) {
         return doOp(
@@ -16,11 +16,12 @@
 
 package org.jrivard.jcxfs.xodusfs;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
 import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
@@ -34,30 +35,50 @@ import org.slf4j.event.Level;
 class ByteArrayDataStore implements DataStore {
     private static final XodusFsLogger LOGGER = XodusFsLogger.getLogger(ByteBufferDataStore.class);
 
+    private static final byte[] EMPTY_PAGE = new byte[0];
+
     private final EnvironmentWrapper environmentWrapper;
     private final Store dataStore;
     private final Store dataLengthStore;
+    private final DataPages dataPages;
     private final int pageSize;
-    private final Cache<Long, Long> lengthCache;
+    private final int inlineDataBytes;
+    private final StoreCache<Long, DataLengthEntry> lengthCache;
+    private final PageCache pageCache;
 
     public ByteArrayDataStore(final EnvironmentWrapper environmentWrapper) throws JcxfsException {
         this.environmentWrapper = environmentWrapper;
         this.dataStore = environmentWrapper.getStore(XodusStore.DATA);
         this.dataLengthStore = environmentWrapper.getStore(XodusStore.DATA_LENGTH);
+        this.dataPages = new DataPages(environmentWrapper);
         this.pageSize = environmentWrapper.readXodusFsParams().orElseThrow().pageSize();
+        this.inlineDataBytes = Math.min(environmentWrapper.runtimeParameters().inlineDataBytes(), pageSize);
 
         lengthCache = StoreBucket.makeCache(environmentWrapper);
+        pageCache = PageCache.forEnvironment(environmentWrapper);
     }
 
     private void writeFidLength(final Transaction txn, final long fid, final long length) {
-        lengthCache.invalidate(fid);
-        dataLengthStore.put(txn, LongBinding.longToEntry(fid), LongBinding.longToEntry(length));
+        writeLengthEntry(txn, fid, DataLengthEntry.paged(length));
+    }
+
+    private void writeLengthEntry(final Transaction txn, final long fid, final DataLengthEntry lengthEntry) {
+        lengthCache.invalidate(txn, fid);
+        dataLengthStore.put(txn, LongBinding.longToEntry(fid), lengthEntry.toByteIterable());
     }
 
     private long readFidLength(final Transaction txn, final long fid) {
-        return lengthCache.get(fid, lambdaFid -> {
+        return readLengthEntry(txn, fid).length();
+    }
+
+    /**
+     * Read the length entry of a file, the returned entry is shared with the cache and its inline data must not be
+     * modified.
+     */
+    private DataLengthEntry readLengthEntry(final Transaction txn, final long fid) {
+        return lengthCache.get(txn, fid, lambdaFid -> {
             final ByteIterable storedValue = dataLengthStore.get(txn, LongBinding.longToEntry(lambdaFid));
-            return storedValue == null ? 0 : LongBinding.entryToLong(storedValue);
+            return storedValue == null ? DataLengthEntry.EMPTY : DataLengthEntry.fromByteIterable(storedValue);
         });
     }
 
@@ -80,22 +101,36 @@ class ByteArrayDataStore implements DataStore {
 
     @Override
     public void truncate(final Transaction txn, final long id, final long length) {
-        final long existingLength = readFidLength(txn, id);
+        final DataLengthEntry existingEntry = readLengthEntry(txn, id);
+        final long existingLength = existingEntry.length();
 
         if (existingLength < 0) {
             throw new IllegalStateException("no such fid");
         }
 
-        if (existingLength <= length) {
+        if (existingLength < length) {
+            extend(txn, id, existingEntry, length);
+            return;
+        }
+
+        if (existingLength == length) {
+            return;
+        }
+
+        if (existingEntry.isInline()) {
+            writeLengthEntry(
+                    txn,
+                    id,
+                    DataLengthEntry.inline(Arrays.copyOf(existingEntry.inlineData(), Math.toIntExact(length))));
             return;
         }
 
         final int newLastPage = Math.toIntExact(Math.divideExact(length, pageSize));
+        final int newLastPageEndPosition = Math.toIntExact(length % pageSize);
 
         {
-            final int newLastPageEndPosition = Math.toIntExact(length % pageSize);
             if (newLastPageEndPosition > 0) {
-                final byte[] pageData = readPage(txn, id, newLastPage);
+                final byte[] pageData = readPage(txn, id, newLastPage, false);
                 if (pageData.length > newLastPageEndPosition) {
                     final byte[] newPageData = new byte[newLastPageEndPosition];
                     System.arraycopy(pageData, 0, newPageData, 0, newPageData.length);
@@ -104,12 +139,12 @@ class ByteArrayDataStore implements DataStore {
             }
         }
 
+        // a new length on a page boundary leaves no data on the new last page
         {
-            final int existingTotalPages = calculateTotalDataPages(existingLength);
-            for (int loopPage = newLastPage + 1; loopPage <= existingTotalPages; loopPage++) {
-                final ByteIterable key = DataKey.toByteIterable(id, loopPage);
-                dataStore.delete(txn, key);
-            }
+            final int firstOrphanPage = newLastPageEndPosition > 0 ? newLastPage + 1 : newLastPage;
+            final List<Integer> orphanPages =
+                    DataStore.storedPages(dataStore, txn, id, firstOrphanPage, Integer.MAX_VALUE);
+            orphanPages.forEach(page -> deletePage(txn, id, page));
         }
 
         LOGGER.trace(() -> "truncated id=" + InodeId.prettyPrint(id) + " new length=" + length);
@@ -118,28 +153,40 @@ class ByteArrayDataStore implements DataStore {
 
     public void deleteEntry(final Transaction txn, final long fid) {
         final Instant startTime = Instant.now();
-        final long totalLength = readFidLength(txn, fid);
+        final DataLengthEntry lengthEntry = readLengthEntry(txn, fid);
+        final long totalLength = lengthEntry.length();
         if (totalLength < 0) {
             throw new IllegalStateException("no such fid");
         }
 
-        final int totalPages = calculateTotalDataPages(totalLength);
+        final List<Integer> storedPages =
+                lengthEntry.isInline() ? List.of() : DataStore.storedPages(dataStore, txn, fid, 0, Integer.MAX_VALUE);
+        storedPages.forEach(page -> deletePage(txn, fid, page));
 
-        if (totalPages >= 0) {
-            for (int loopPage = 0; loopPage <= totalPages; loopPage++) {
-                final ByteIterable key = DataKey.toByteIterable(fid, loopPage);
-                dataStore.delete(txn, key);
-            }
-        }
-
-        lengthCache.invalidate(fid);
+        lengthCache.invalidate(txn, fid);
         dataLengthStore.delete(txn, LongBinding.longToEntry(fid));
-        LOGGER.trace(() -> "removed fid " + fid + " with " + (totalPages + 1) + " pages ", startTime);
+        LOGGER.trace(() -> "removed fid " + fid + " with " + storedPages.size() + " pages ", startTime);
     }
 
+    @Override
+    public byte[][] readPages(final Transaction txn, final long fid, final int firstPage, final int pageCount) {
+        final DataLengthEntry lengthEntry = readLengthEntry(txn, fid);
+        if (lengthEntry.isInline()) {
+            return DataStore.inlinePageRange(lengthEntry.inlineData(), firstPage, pageCount, pageSize);
+        }
+        return dataPages.readRange(txn, fid, firstPage, pageCount, pageSize);
+    }
+
+    @Override
     public int readData(
-            final Transaction txn, final long fid, final ByteBuffer buf, final long count, final long offset) {
-        final long storedLength = readFidLength(txn, fid);
+            final Transaction txn,
+            final long fid,
+            final ByteBuffer buf,
+            final long count,
+            final long offset,
+            final boolean cachePages) {
+        final DataLengthEntry lengthEntry = readLengthEntry(txn, fid);
+        final long storedLength = lengthEntry.length();
         final long requestedLastPosition = offset + count;
 
         final long recalculatedCount;
@@ -151,19 +198,30 @@ class ByteArrayDataStore implements DataStore {
             recalculatedCount = count;
         }
 
-        final ByteArrayOutputStream tempData = new ByteArrayOutputStream((int) recalculatedCount);
-        readData2(txn, fid, tempData, recalculatedCount, offset);
-        final byte[] outputData = tempData.toByteArray();
-        buf.put(outputData, 0, outputData.length);
-        return outputData.length;
+        if (recalculatedCount <= 0) {
+            return 0;
+        }
+
+        if (lengthEntry.isInline()) {
+            final int inlineCount = Math.toIntExact(recalculatedCount);
+            buf.put(lengthEntry.inlineData(), Math.toIntExact(offset), inlineCount);
+            return inlineCount;
+        }
+
+        return readData2(txn, fid, buf, recalculatedCount, offset, cachePages);
     }
 
-    private void readData2(
+    /**
+     * Copy the requested range directly into the output buffer, a bulk put of each page slice followed by a bulk
+     * zero fill of any bytes beyond the stored (suffix null trimmed) page.
+     */
+    private int readData2(
             final Transaction txn,
             final long fid,
-            final ByteArrayOutputStream tempData,
+            final ByteBuffer buf,
             final long count,
-            final long offset) {
+            final long offset,
+            final boolean cachePages) {
         final long firstPosition = offset;
         final long lastPosition = offset + count;
 
@@ -171,22 +229,24 @@ class ByteArrayDataStore implements DataStore {
 
         final int firstPage = Math.toIntExact(Math.divideExact(offset, pageSize));
         int page = firstPage;
+        int bytesCopied = 0;
+        int holeEndPage = -1;
 
         while (position < lastPosition) {
-            final byte[] currentPageData = readPage(txn, fid, page);
-
-            final int totalBytesRemaining = Math.toIntExact(Math.subtractExact(lastPosition, position));
-            final int pageReadStart = Math.toIntExact(position % pageSize);
-            // final int pageReadLength = Math.min( pageSize - pageReadStart, totalBytesRemaining - pageReadStart );
-            final int pageReadLength;
-            {
-                int tempPageReadLength = pageSize - pageReadStart;
-                if (tempPageReadLength > totalBytesRemaining) {
-                    tempPageReadLength = totalBytesRemaining;
+            final byte[] currentPageData;
+            if (page < holeEndPage) {
+                currentPageData = EMPTY_PAGE;
+            } else {
+                currentPageData = readPage(txn, fid, page, cachePages);
+                if (currentPageData.length == 0 && position + pageSize < lastPosition) {
+                    // a missing page may start a large hole, seek to where stored pages resume instead of probing
+                    holeEndPage = DataStore.nextStoredPage(dataStore, txn, fid, page + 1);
                 }
-                pageReadLength = tempPageReadLength;
             }
 
+            final int totalBytesRemaining = Math.toIntExact(Math.subtractExact(lastPosition, position));
+            final int pageReadStart = Math.toIntExact(position % pageSize);
+            final int pageReadLength = Math.min(pageSize - pageReadStart, totalBytesRemaining);
             final int pageReadEnd = pageReadStart + pageReadLength;
 
             if (LOGGER.isLevel(Level.TRACE)) {
@@ -195,38 +255,46 @@ class ByteArrayDataStore implements DataStore {
                         + " lastPosition=" + lastPosition
                         + " position=" + position_finalCopy
                         + " pageReadStart=" + pageReadStart
-                        + " pageReadEnd=" + pageReadStart
-                        + " pageReadStart=" + pageReadStart
+                        + " pageReadEnd=" + pageReadEnd
                         + " pageReadLength=" + pageReadLength
                         + " totalBytesRemaining=" + totalBytesRemaining);
             }
 
-            {
-                final int effectiveEndPosition = Math.min(pageReadEnd, currentPageData.length);
-                final int copyLength = Math.max(0, effectiveEndPosition - pageReadStart);
-                if (copyLength > 0) {
-                    tempData.write(currentPageData, pageReadStart, copyLength);
-                    position += copyLength;
-                }
-
-                final int padBytes = pageReadLength - copyLength;
-                if (padBytes > 0) {
-                    for (int i = 0; i < padBytes; i++) {
-                        tempData.write(0x00);
-                    }
-                    position += padBytes;
-                }
+            final int effectiveEndPosition = Math.min(pageReadEnd, currentPageData.length);
+            final int copyLength = Math.max(0, effectiveEndPosition - pageReadStart);
+            if (copyLength > 0) {
+                buf.put(currentPageData, pageReadStart, copyLength);
             }
+            JavaUtil.putZeros(buf, pageReadLength - copyLength);
 
+            position += pageReadLength;
+            bytesCopied += pageReadLength;
             page++;
         }
+
+        return bytesCopied;
     }
 
+    @Override
     public int writeData(
-            final Transaction txn, final long fid, final ByteBuffer buf, final long count, final long offset) {
+            final Transaction txn,
+            final long fid,
+            final ByteBuffer buf,
+            final long count,
+            final long offset,
+            final boolean compressPages) {
         final long firstPos = offset;
         final long lastPosition = offset + count;
 
+        final DataLengthEntry lengthEntry = readLengthEntry(txn, fid);
+        if (lastPosition <= inlineDataBytes && (lengthEntry.isInline() || lengthEntry.length() == 0)) {
+            return writeInline(txn, fid, lengthEntry, buf, count, offset);
+        }
+
+        if (lengthEntry.isInline()) {
+            promoteInline(txn, fid, lengthEntry, compressPages);
+        }
+
         long position = offset;
 
         final int firstPage = Math.toIntExact(Math.divideExact(offset, pageSize));
@@ -244,7 +312,7 @@ class ByteArrayDataStore implements DataStore {
 
             if (pageWriteStart != 0 || pageWriteEnd != pageSize) {
                 // not writing full page, so first read existing page into output buffer
-                final byte[] existingPageData = readPage(txn, fid, page);
+                final byte[] existingPageData = readPage(txn, fid, page, false);
                 pageOutput = new byte[Math.max(pageWriteEnd, existingPageData.length)];
                 if (existingPageData.length > 0) {
                     System.arraycopy(existingPageData, 0, pageOutput, 0, existingPageData.length);
@@ -256,7 +324,7 @@ class ByteArrayDataStore implements DataStore {
             // write argument buffer to page output buffer
             buf.get(pageOutput, pageWriteStart, pageWriteLength);
 
-            writePage(txn, fid, page, pageOutput);
+            writePage(txn, fid, page, pageOutput, compressPages);
             position += pageWriteLength;
 
             page++;
@@ -268,6 +336,191 @@ class ByteArrayDataStore implements DataStore {
         return bytesWritten;
     }
 
+    @Override
+    public long copyRange(
+            final Transaction txn,
+            final long sourceFid,
+            final long sourceOffset,
+            final long targetFid,
+            final long targetOffset,
+            final long length) {
+        final DataLengthEntry sourceEntry = readLengthEntry(txn, sourceFid);
+        final long count = Math.min(length, sourceEntry.length() - sourceOffset);
+        if (count <= 0) {
+            return 0;
+        }
+
+        if (sourceFid == targetFid
+                || sourceEntry.isInline()
+                || (sourceOffset - targetOffset) % pageSize != 0
+                || count < pageSize) {
+            return DataStore.copyBytes(this, txn, sourceFid, sourceOffset, targetFid, targetOffset, count);
+        }
+
+        // copy the unaligned head, then share the whole pages and copy what remains of the last page
+        final long headLength = (pageSize - sourceOffset % pageSize) % pageSize;
+        if (headLength > 0) {
+            DataStore.copyBytes(this, txn, sourceFid, sourceOffset, targetFid, targetOffset, headLength);
+        }
+        final DataLengthEntry targetEntry = readLengthEntry(txn, targetFid);
+        if (targetEntry.isInline()) {
+            promoteInline(txn, targetFid, targetEntry, true);
+        }
+
+        final long sourceEnd = sourceOffset + count;
+        final long targetEnd = targetOffset + count;
+        final long sharedStart = sourceOffset + headLength;
+        long sharedEnd = sourceEnd - sourceEnd % pageSize;
+        if (sharedEnd < sourceEnd && sourceEnd == sourceEntry.length() && targetEnd >= targetEntry.length()) {
+            // past the end of both files the last page holds only zeros, so a partial last page can be shared too
+            sharedEnd += pageSize;
+        }
+
+        if (sharedEnd > sharedStart) {
+            final int firstSourcePage = Math.toIntExact(sharedStart / pageSize);
+            final int firstTargetPage = Math.toIntExact((targetOffset + headLength) / pageSize);
+            final int pageCount = Math.toIntExact((sharedEnd - sharedStart) / pageSize);
+            final List<Integer> changedPages =
+                    dataPages.sharePages(txn, sourceFid, firstSourcePage, targetFid, firstTargetPage, pageCount);
+            changedPages.forEach(page -> pageCache.invalidate(txn, new DataKey(targetFid, page)));
+        }
+
+        if (sharedEnd < sourceEnd) {
+            final long tailOffset = sharedEnd - sourceOffset;
+            DataStore.copyBytes(
+                    this, txn, sourceFid, sharedEnd, targetFid, targetOffset + tailOffset, sourceEnd - sharedEnd);
+        }
+
+        updateLengthIfNeeded(txn, targetFid, targetEnd);
+        LOGGER.trace(() -> "copied " + count + " bytes from inode=" + InodeId.prettyPrint(sourceFid) + " to inode="
+                + InodeId.prettyPrint(targetFid));
+        return count;
+    }
+
+    /**
+     * Grow a file without writing any pages, the new range reads as zeros until it is written.
+     */
+    private void extend(final Transaction txn, final long fid, final DataLengthEntry existingEntry, final long length) {
+        if (length <= inlineDataBytes && (existingEntry.isInline() || existingEntry.length() == 0)) {
+            final byte[] existingData = existingEntry.isInline() ? existingEntry.inlineData() : EMPTY_PAGE;
+            writeLengthEntry(txn, fid, DataLengthEntry.inline(Arrays.copyOf(existingData, Math.toIntExact(length))));
+            return;
+        }
+
+        if (existingEntry.isInline()) {
+            promoteInline(txn, fid, existingEntry, true);
+        }
+        writeFidLength(txn, fid, length);
+        LOGGER.trace(() -> "extended id=" + InodeId.prettyPrint(fid) + " new length=" + length);
+    }
+
+    @Override
+    public long seekData(final Transaction txn, final long fid, final long offset) {
+        return DataStore.seekData(dataStore, txn, fid, readLengthEntry(txn, fid), offset, pageSize);
+    }
+
+    @Override
+    public long seekHole(final Transaction txn, final long fid, final long offset) {
+        return DataStore.seekHole(dataStore, txn, fid, readLengthEntry(txn, fid), offset, pageSize);
+    }
+
+    @Override
+    public void allocate(
+            final Transaction txn, final long fid, final long offset, final long length, final boolean keepSize) {
+        final DataLengthEntry existingEntry = readLengthEntry(txn, fid);
+        final long end = Math.addExact(offset, length);
+        if (!keepSize && end > existingEntry.length()) {
+            extend(txn, fid, existingEntry, end);
+        }
+    }
+
+    @Override
+    public void punchHole(final Transaction txn, final long fid, final long offset, final long length) {
+        final DataLengthEntry existingEntry = readLengthEntry(txn, fid);
+        final long end = Math.min(Math.addExact(offset, length), existingEntry.length());
+        if (offset >= end) {
+            return;
+        }
+
+        if (existingEntry.isInline()) {
+            final byte[] newData = Arrays.copyOf(existingEntry.inlineData(), existingEntry.inlineData().length);
+            Arrays.fill(newData, Math.toIntExact(offset), Math.toIntExact(end), (byte) 0);
+            writeLengthEntry(txn, fid, DataLengthEntry.inline(newData));
+            return;
+        }
+
+        final int firstPage = Math.toIntExact(offset / pageSize);
+        final int lastPage = Math.toIntExact((end - 1) / pageSize);
+        final int firstPageStart = Math.toIntExact(offset % pageSize);
+        final int lastPageEnd = Math.toIntExact(end - (long) lastPage * pageSize);
+
+        if (firstPage == lastPage) {
+            if (firstPageStart == 0 && lastPageEnd == pageSize) {
+                deletePage(txn, fid, firstPage);
+            } else {
+                zeroPageRange(txn, fid, firstPage, firstPageStart, lastPageEnd);
+            }
+            return;
+        }
+
+        final int firstWholePage = firstPageStart == 0 ? firstPage : firstPage + 1;
+        final int lastWholePage = lastPageEnd == pageSize ? lastPage : lastPage - 1;
+        if (firstPageStart > 0) {
+            zeroPageRange(txn, fid, firstPage, firstPageStart, pageSize);
+        }
+        if (lastPageEnd < pageSize) {
+            zeroPageRange(txn, fid, lastPage, 0, lastPageEnd);
+        }
+        for (final int page : DataStore.storedPages(dataStore, txn, fid, firstWholePage, lastWholePage + 1)) {
+            deletePage(txn, fid, page);
+        }
+        LOGGER.trace(() -> "punched hole id=" + InodeId.prettyPrint(fid) + " offset=" + offset + " end=" + end);
+    }
+
+    /**
+     * Zero the part of a page between {@code start} and {@code end}, positions within the page.
+     */
+    private void zeroPageRange(final Transaction txn, final long fid, final int page, final int start, final int end) {
+        final byte[] pageData = readPage(txn, fid, page, false);
+        if (pageData.length <= start) {
+            return;
+        }
+
+        final byte[] newPageData = Arrays.copyOf(pageData, pageData.length);
+        Arrays.fill(newPageData, start, Math.min(end, newPageData.length), (byte) 0);
+        writePage(txn, fid, page, newPageData);
+    }
+
+    private int writeInline(
+            final Transaction txn,
+            final long fid,
+            final DataLengthEntry lengthEntry,
+            final ByteBuffer buf,
+            final long count,
+            final long offset) {
+        final int intOffset = Math.toIntExact(offset);
+        final int intCount = Math.toIntExact(count);
+        final byte[] existingData = lengthEntry.isInline() ? lengthEntry.inlineData() : EMPTY_PAGE;
+        final byte[] newData = Arrays.copyOf(existingData, Math.max(existingData.length, intOffset + intCount));
+        buf.get(newData, intOffset, intCount);
+        writeLengthEntry(txn, fid, DataLengthEntry.inline(newData));
+        return intCount;
+    }
+
+    /**
+     * Move the contents of an inlined file to the data table once a write grows it past the inline limit.  The inline
+     * limit never exceeds the page size, so the contents always fit the first page.
+     */
+    private void promoteInline(
+            final Transaction txn, final long fid, final DataLengthEntry lengthEntry, final boolean compress) {
+        final byte[] inlineData = lengthEntry.inlineData();
+        if (inlineData.length > 0) {
+            writePage(txn, fid, 0, inlineData, compress);
+        }
+        writeFidLength(txn, fid, inlineData.length);
+        LOGGER.trace(() -> "moved inline data of inode=" + InodeId.prettyPrint(fid) + " to data pages");
+    }
+
     private void updateLengthIfNeeded(final Transaction txn, final long fid, final long newLength) {
         final long storedLength = readFidLength(txn, fid);
         if (newLength > storedLength) {
@@ -277,20 +530,53 @@ class ByteArrayDataStore implements DataStore {
         }
     }
 
-    private byte[] readPage(final Transaction txn, final long fid, final int page) {
-        final ByteIterable blockKey = DataKey.toByteIterable(fid, page);
-        final ByteIterable valueIterable = dataStore.get(txn, blockKey);
-        final byte[] data = valueIterable == null ? new byte[0] : valueIterable.getBytesUnsafe();
+    /**
+     * Read a page, which may be served from the page cache.  Only the read path sets {@code populateCache}, pages
+     * read while preparing a write are about to be replaced.  The returned array must not be modified.
+     */
+    private byte[] readPage(final Transaction txn, final long fid, final int page, final boolean populateCache) {
+        final DataKey dataKey = new DataKey(fid, page);
+        final byte[] cachedData = pageCache.get(txn, dataKey);
+        if (cachedData != null) {
+            return cachedData;
+        }
+
+        final ByteIterable valueIterable = dataPages.read(txn, dataKey.toByteIterable());
+        final byte[] data = valueIterable == null ? EMPTY_PAGE : exactBytes(valueIterable);
+        if (populateCache) {
+            pageCache.put(txn, dataKey, data);
+        }
         logPageOperation("read ", fid, page, data);
         return data;
     }
 
+    private static byte[] exactBytes(final ByteIterable byteIterable) {
+        final byte[] bytes = byteIterable.getBytesUnsafe();
+        final int length = byteIterable.getLength();
+        return bytes.length == length ? bytes : Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Rewrite a page on behalf of truncate or hole punching, which follow the configured compression.
+     */
     private void writePage(final Transaction txn, final long fid, final int page, final byte[] data) {
-        final ByteIterable blockKey = DataKey.toByteIterable(fid, page);
+        writePage(txn, fid, page, data, true);
+    }
+
+    private void writePage(
+            final Transaction txn, final long fid, final int page, final byte[] data, final boolean compress) {
+        final DataKey dataKey = new DataKey(fid, page);
         final int lastNonNullByte = data.length - JavaUtil.suffixNullCount(data);
         final ByteIterable valueIterable = new ArrayByteIterable(data, lastNonNullByte);
         logPageOperation("write", fid, page, data);
-        dataStore.put(txn, blockKey, valueIterable);
+        pageCache.invalidate(txn, dataKey);
+        dataPages.write(txn, dataKey.toByteIterable(), valueIterable, compress);
+    }
+
+    private void deletePage(final Transaction txn, final long fid, final int page) {
+        final DataKey dataKey = new DataKey(fid, page);
+        pageCache.invalidate(txn, dataKey);
+        dataPages.delete(txn, dataKey.toByteIterable());
     }
 
     private void logPageOperation(final String prefix, final long fid, final int page, final byte[] data) {
@@ -313,13 +599,11 @@ class ByteArrayDataStore implements DataStore {
         LOGGER.trace(msg::toString);
     }
 
-    private int calculateTotalDataPages(final long length) {
-        return Math.toIntExact(Math.divideExact(length, pageSize));
-    }
-
     @Override
     public Map<String, String> runtimeStats() {
-        return Map.of();
+        final Map<String, String> map = new HashMap<>(pageCache.runtimeStats());
+        map.putAll(dataPages.runtimeStats());
+        return Map.copyOf(map);
     }
 
     private class DebugOutputter {
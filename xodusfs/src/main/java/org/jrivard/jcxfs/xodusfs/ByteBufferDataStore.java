@@ -17,13 +17,15 @@
 package org.jrivard.jcxfs.xodusfs;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteBufferByteIterable;
 import jetbrains.exodus.ByteIterable;
-import jetbrains.exodus.ByteIterator;
 import jetbrains.exodus.bindings.LongBinding;
 import jetbrains.exodus.env.Store;
 import jetbrains.exodus.env.Transaction;
@@ -46,6 +48,8 @@ class ByteBufferDataStore implements DataStore {
         dataFileWrites,
         dataFileLengthReads,
         dataFileLengthWrites,
+        dataFileInlineWrites,
+        dataFileInlinePromotions,
         bytesRead,
         bytesWritten,
     }
@@ -53,23 +57,37 @@ class ByteBufferDataStore implements DataStore {
     private final EnvironmentWrapper environmentWrapper;
     private final Store dataStore;
     private final Store dataLengthStore;
+    private final DataPages dataPages;
     private final int pageSize;
+    private final int inlineDataBytes;
+    private final PageCache pageCache;
 
     public ByteBufferDataStore(final EnvironmentWrapper environmentWrapper) throws JcxfsException {
         this.environmentWrapper = environmentWrapper;
         this.dataStore = environmentWrapper.getStore(XodusStore.DATA);
         this.dataLengthStore = environmentWrapper.getStore(XodusStore.DATA_LENGTH);
+        this.dataPages = new DataPages(environmentWrapper);
         this.pageSize = environmentWrapper.readXodusFsParams().orElseThrow().pageSize();
+        this.inlineDataBytes = Math.min(environmentWrapper.runtimeParameters().inlineDataBytes(), pageSize);
+        this.pageCache = PageCache.forEnvironment(environmentWrapper);
     }
 
     private void writeFidLength(final Transaction txn, final long fid, final long length) {
+        writeLengthEntry(txn, fid, DataLengthEntry.paged(length));
+    }
+
+    private void writeLengthEntry(final Transaction txn, final long fid, final DataLengthEntry lengthEntry) {
         stats.increment(DataStoreDebugStats.dataFileLengthWrites);
-        dataLengthStore.put(txn, LongBinding.longToEntry(fid), LongBinding.longToEntry(length));
+        dataLengthStore.put(txn, LongBinding.longToEntry(fid), lengthEntry.toByteIterable());
     }
 
     private long readFidLength(final Transaction txn, final long fid) {
+        return readLengthEntry(txn, fid).length();
+    }
+
+    private DataLengthEntry readLengthEntry(final Transaction txn, final long fid) {
         final ByteIterable storedValue = dataLengthStore.get(txn, LongBinding.longToEntry(fid));
-        return storedValue == null ? 0 : LongBinding.entryToLong(storedValue);
+        return storedValue == null ? DataLengthEntry.EMPTY : DataLengthEntry.fromByteIterable(storedValue);
     }
 
     @Override
@@ -88,43 +106,52 @@ class ByteBufferDataStore implements DataStore {
 
     @Override
     public void truncate(final Transaction txn, final long id, final long length) {
-        final long existingLength = readFidLength(txn, id);
+        final DataLengthEntry existingEntry = readLengthEntry(txn, id);
+        final long existingLength = existingEntry.length();
 
         if (existingLength < 0) {
             throw new IllegalStateException("no such fid");
         }
 
-        if (existingLength <= length) {
+        if (existingLength < length) {
+            extend(txn, id, existingEntry, length);
+            return;
+        }
+
+        if (existingLength == length) {
+            return;
+        }
+
+        if (existingEntry.isInline()) {
+            writeLengthEntry(
+                    txn,
+                    id,
+                    DataLengthEntry.inline(Arrays.copyOf(existingEntry.inlineData(), Math.toIntExact(length))));
             return;
         }
 
         final int newLastPage = Math.toIntExact(Math.divideExact(length, pageSize));
+        final int newLastPageEndPosition = Math.toIntExact(length % pageSize);
 
         // find the new last page and truncate it to the new length
         {
-            final int newLastPageEndPosition = Math.toIntExact(length % pageSize);
             if (newLastPageEndPosition > 0) {
-                final ByteIterable pageData = readPage(txn, id, newLastPage);
+                final ByteIterable pageData = readPage(txn, id, newLastPage, false);
                 if (pageData.getLength() > newLastPageEndPosition) {
-                    final ByteBuffer newPageData = ByteBuffer.allocate(newLastPageEndPosition);
-                    final ByteIterator iter = pageData.iterator();
-                    while (iter.hasNext() && newPageData.hasRemaining()) {
-                        newPageData.put(iter.next());
-                    }
-                    newPageData.flip();
+                    final ByteBuffer newPageData =
+                            ByteBuffer.wrap(Arrays.copyOf(pageData.getBytesUnsafe(), newLastPageEndPosition));
                     writePage(txn, id, newLastPage, newPageData);
                 }
             }
         }
 
-        // delete all the orphaned pages
+        // delete all the orphaned pages, a new length on a page boundary leaves no data on the new last page
         {
-            final int existingTotalPages = calculateTotalDataPages(existingLength);
-            for (int loopPage = newLastPage + 1; loopPage <= existingTotalPages; loopPage++) {
-                final ByteIterable key = DataKey.toByteIterable(id, loopPage);
-                dataStore.delete(txn, key);
-            }
-            stats.increment(DataStoreDebugStats.dataPagesDeleted, existingTotalPages);
+            final int firstOrphanPage = newLastPageEndPosition > 0 ? newLastPage + 1 : newLastPage;
+            final List<Integer> orphanPages =
+                    DataStore.storedPages(dataStore, txn, id, firstOrphanPage, Integer.MAX_VALUE);
+            orphanPages.forEach(page -> deletePage(txn, id, page));
+            stats.increment(DataStoreDebugStats.dataPagesDeleted, orphanPages.size());
         }
 
         LOGGER.trace(() -> "truncated id=" + InodeId.prettyPrint(id) + " new length=" + length);
@@ -132,34 +159,46 @@ class ByteBufferDataStore implements DataStore {
     }
 
     public void deleteEntry(final Transaction txn, final long fid) {
-        final long totalLength = readFidLength(txn, fid);
+        final DataLengthEntry lengthEntry = readLengthEntry(txn, fid);
+        final long totalLength = lengthEntry.length();
         if (totalLength < 0) {
             throw new IllegalStateException("no such fid");
         }
 
-        final int totalPages = calculateTotalDataPages(totalLength);
-
-        if (totalPages >= 0) {
-            for (int loopPage = 0; loopPage <= totalPages; loopPage++) {
-                final ByteIterable key = DataKey.toByteIterable(fid, loopPage);
-                dataStore.delete(txn, key);
-            }
-        }
+        final List<Integer> storedPages =
+                lengthEntry.isInline() ? List.of() : DataStore.storedPages(dataStore, txn, fid, 0, Integer.MAX_VALUE);
+        storedPages.forEach(page -> deletePage(txn, fid, page));
 
         dataLengthStore.delete(txn, LongBinding.longToEntry(fid));
 
-        stats.increment(DataStoreDebugStats.dataPagesDeleted, totalPages);
+        stats.increment(DataStoreDebugStats.dataPagesDeleted, storedPages.size());
 
-        LOGGER.trace(() -> "removed " + (totalPages + 1) + " pages for fid " + fid);
+        LOGGER.trace(() -> "removed " + storedPages.size() + " pages for fid " + fid);
     }
 
     public long size(final Transaction txn) {
         return dataLengthStore.count(txn);
     }
 
+    @Override
+    public byte[][] readPages(final Transaction txn, final long fid, final int firstPage, final int pageCount) {
+        final DataLengthEntry lengthEntry = readLengthEntry(txn, fid);
+        if (lengthEntry.isInline()) {
+            return DataStore.inlinePageRange(lengthEntry.inlineData(), firstPage, pageCount, pageSize);
+        }
+        return dataPages.readRange(txn, fid, firstPage, pageCount, pageSize);
+    }
+
+    @Override
     public int readData(
-            final Transaction txn, final long fid, final ByteBuffer buf, final long count, final long offset) {
-        final long storedLength = readFidLength(txn, fid);
+            final Transaction txn,
+            final long fid,
+            final ByteBuffer buf,
+            final long count,
+            final long offset,
+            final boolean cachePages) {
+        final DataLengthEntry lengthEntry = readLengthEntry(txn, fid);
+        final long storedLength = lengthEntry.length();
         final long requestedLastPosition = offset + count;
 
         final long recalculatedCount;
@@ -171,7 +210,13 @@ class ByteBufferDataStore implements DataStore {
             recalculatedCount = count;
         }
 
-        final int bytesRead = readData2(txn, fid, buf, recalculatedCount, offset);
+        final int bytesRead;
+        if (lengthEntry.isInline()) {
+            bytesRead = Math.toIntExact(Math.max(0, recalculatedCount));
+            buf.put(lengthEntry.inlineData(), Math.toIntExact(offset), bytesRead);
+        } else {
+            bytesRead = readData2(txn, fid, buf, recalculatedCount, offset, cachePages);
+        }
         stats.increment(DataStoreDebugStats.bytesRead, bytesRead);
         stats.increment(DataStoreDebugStats.dataFileReads);
 
@@ -179,7 +224,12 @@ class ByteBufferDataStore implements DataStore {
     }
 
     private int readData2(
-            final Transaction txn, final long fid, final ByteBuffer tempData, final long count, final long offset) {
+            final Transaction txn,
+            final long fid,
+            final ByteBuffer tempData,
+            final long count,
+            final long offset,
+            final boolean cachePages) {
         final long firstPosition = offset;
         final long lastPosition = offset + count;
 
@@ -188,9 +238,19 @@ class ByteBufferDataStore implements DataStore {
         final int firstPage = Math.toIntExact(Math.divideExact(offset, pageSize));
         int page = firstPage;
         int bytesCopied = 0;
+        int holeEndPage = -1;
 
         while (position < lastPosition) {
-            final ByteIterable currentPageData = readPage(txn, fid, page);
+            final ByteIterable currentPageData;
+            if (page < holeEndPage) {
+                currentPageData = ByteIterable.EMPTY;
+            } else {
+                currentPageData = readPage(txn, fid, page, cachePages);
+                if (currentPageData.getLength() == 0 && position + pageSize < lastPosition) {
+                    // a missing page may start a large hole, seek to where stored pages resume instead of probing
+                    holeEndPage = DataStore.nextStoredPage(dataStore, txn, fid, page + 1);
+                }
+            }
 
             final int totalBytesRemaining = Math.toIntExact(Math.subtractExact(lastPosition, position));
             final int pageReadStart = Math.toIntExact(position % pageSize);
@@ -222,24 +282,12 @@ class ByteBufferDataStore implements DataStore {
                 final int effectiveEndPosition = Math.min(pageReadEnd, currentPageData.getLength());
                 final int copyLength = Math.max(0, effectiveEndPosition - pageReadStart);
                 if (copyLength > 0) {
-                    final ByteIterator slice = currentPageData
-                            .subIterable(pageReadStart, copyLength)
-                            .iterator();
-                    while (slice.hasNext()) {
-                        tempData.put(slice.next());
-                    }
-                    position += copyLength;
-                    bytesCopied += copyLength;
-                }
-
-                final int padBytes = pageReadLength - copyLength;
-                if (padBytes > 0) {
-                    for (int i = 0; i < padBytes; i++) {
-                        tempData.put((byte) 0x00);
-                    }
-                    position += padBytes;
-                    bytesCopied += padBytes;
+                    // getBytesUnsafe() exposes the backing array without a copy for array backed iterables
+                    tempData.put(currentPageData.getBytesUnsafe(), pageReadStart, copyLength);
                 }
+                JavaUtil.putZeros(tempData, pageReadLength - copyLength);
+                position += pageReadLength;
+                bytesCopied += pageReadLength;
             }
 
             page++;
@@ -248,11 +296,26 @@ class ByteBufferDataStore implements DataStore {
         return bytesCopied;
     }
 
+    @Override
     public int writeData(
-            final Transaction txn, final long fid, final ByteBuffer buf, final long count, final long offset) {
+            final Transaction txn,
+            final long fid,
+            final ByteBuffer buf,
+            final long count,
+            final long offset,
+            final boolean compressPages) {
         final long firstPos = offset;
         final long lastPosition = offset + count;
 
+        final DataLengthEntry lengthEntry = readLengthEntry(txn, fid);
+        if (lastPosition <= inlineDataBytes && (lengthEntry.isInline() || lengthEntry.length() == 0)) {
+            return writeInline(txn, fid, lengthEntry, buf, count, offset);
+        }
+
+        if (lengthEntry.isInline()) {
+            promoteInline(txn, fid, lengthEntry, compressPages);
+        }
+
         long position = offset;
 
         final int firstPage = Math.toIntExact(Math.divideExact(offset, pageSize));
@@ -272,18 +335,16 @@ class ByteBufferDataStore implements DataStore {
             final ByteBuffer pageOutput;
             if (pageWriteStart != 0 || pageWriteEnd != pageSize) {
                 // not writing full page, so first read existing page into output buffer
-                final ByteIterable existingPageData = readPage(txn, fid, page);
+                final ByteIterable existingPageData = readPage(txn, fid, page, false);
                 pageOutput = ByteBuffer.allocate(Math.max(pageWriteEnd, existingPageData.getLength()));
-                for (final ByteIterator iterator = existingPageData.iterator(); iterator.hasNext(); ) {
-                    pageOutput.put(iterator.next());
-                }
-                pageOutput.put(nextWriteSlice);
-                pageOutput.flip();
+                pageOutput.put(existingPageData.getBytesUnsafe(), 0, existingPageData.getLength());
+                pageOutput.put(pageWriteStart, nextWriteSlice, 0, pageWriteLength);
+                pageOutput.rewind();
             } else {
                 pageOutput = nextWriteSlice;
             }
 
-            writePage(txn, fid, page, pageOutput);
+            writePage(txn, fid, page, pageOutput, compressPages);
             position += pageWriteLength;
 
             page++;
@@ -297,6 +358,193 @@ class ByteBufferDataStore implements DataStore {
         return bytesWritten;
     }
 
+    @Override
+    public long copyRange(
+            final Transaction txn,
+            final long sourceFid,
+            final long sourceOffset,
+            final long targetFid,
+            final long targetOffset,
+            final long length) {
+        final DataLengthEntry sourceEntry = readLengthEntry(txn, sourceFid);
+        final long count = Math.min(length, sourceEntry.length() - sourceOffset);
+        if (count <= 0) {
+            return 0;
+        }
+
+        if (sourceFid == targetFid
+                || sourceEntry.isInline()
+                || (sourceOffset - targetOffset) % pageSize != 0
+                || count < pageSize) {
+            return DataStore.copyBytes(this, txn, sourceFid, sourceOffset, targetFid, targetOffset, count);
+        }
+
+        // copy the unaligned head, then share the whole pages and copy what remains of the last page
+        final long headLength = (pageSize - sourceOffset % pageSize) % pageSize;
+        if (headLength > 0) {
+            DataStore.copyBytes(this, txn, sourceFid, sourceOffset, targetFid, targetOffset, headLength);
+        }
+        final DataLengthEntry targetEntry = readLengthEntry(txn, targetFid);
+        if (targetEntry.isInline()) {
+            promoteInline(txn, targetFid, targetEntry, true);
+        }
+
+        final long sourceEnd = sourceOffset + count;
+        final long targetEnd = targetOffset + count;
+        final long sharedStart = sourceOffset + headLength;
+        long sharedEnd = sourceEnd - sourceEnd % pageSize;
+        if (sharedEnd < sourceEnd && sourceEnd == sourceEntry.length() && targetEnd >= targetEntry.length()) {
+            // past the end of both files the last page holds only zeros, so a partial last page can be shared too
+            sharedEnd += pageSize;
+        }
+
+        if (sharedEnd > sharedStart) {
+            final int firstSourcePage = Math.toIntExact(sharedStart / pageSize);
+            final int firstTargetPage = Math.toIntExact((targetOffset + headLength) / pageSize);
+            final int pageCount = Math.toIntExact((sharedEnd - sharedStart) / pageSize);
+            final List<Integer> changedPages =
+                    dataPages.sharePages(txn, sourceFid, firstSourcePage, targetFid, firstTargetPage, pageCount);
+            changedPages.forEach(page -> pageCache.invalidate(txn, new DataKey(targetFid, page)));
+        }
+
+        if (sharedEnd < sourceEnd) {
+            final long tailOffset = sharedEnd - sourceOffset;
+            DataStore.copyBytes(
+                    this, txn, sourceFid, sharedEnd, targetFid, targetOffset + tailOffset, sourceEnd - sharedEnd);
+        }
+
+        updateLengthIfNeeded(txn, targetFid, targetEnd);
+        LOGGER.trace(() -> "copied " + count + " bytes from inode=" + InodeId.prettyPrint(sourceFid) + " to inode="
+                + InodeId.prettyPrint(targetFid));
+        return count;
+    }
+
+    /**
+     * Grow a file without writing any pages, the new range reads as zeros until it is written.
+     */
+    private void extend(final Transaction txn, final long fid, final DataLengthEntry existingEntry, final long length) {
+        if (length <= inlineDataBytes && (existingEntry.isInline() || existingEntry.length() == 0)) {
+            final byte[] existingData = existingEntry.isInline() ? existingEntry.inlineData() : new byte[0];
+            writeLengthEntry(txn, fid, DataLengthEntry.inline(Arrays.copyOf(existingData, Math.toIntExact(length))));
+            return;
+        }
+
+        if (existingEntry.isInline()) {
+            promoteInline(txn, fid, existingEntry, true);
+        }
+        writeFidLength(txn, fid, length);
+        LOGGER.trace(() -> "extended id=" + InodeId.prettyPrint(fid) + " new length=" + length);
+    }
+
+    @Override
+    public long seekData(final Transaction txn, final long fid, final long offset) {
+        return DataStore.seekData(dataStore, txn, fid, readLengthEntry(txn, fid), offset, pageSize);
+    }
+
+    @Override
+    public long seekHole(final Transaction txn, final long fid, final long offset) {
+        return DataStore.seekHole(dataStore, txn, fid, readLengthEntry(txn, fid), offset, pageSize);
+    }
+
+    @Override
+    public void allocate(
+            final Transaction txn, final long fid, final long offset, final long length, final boolean keepSize) {
+        final DataLengthEntry existingEntry = readLengthEntry(txn, fid);
+        final long end = Math.addExact(offset, length);
+        if (!keepSize && end > existingEntry.length()) {
+            extend(txn, fid, existingEntry, end);
+        }
+    }
+
+    @Override
+    public void punchHole(final Transaction txn, final long fid, final long offset, final long length) {
+        final DataLengthEntry existingEntry = readLengthEntry(txn, fid);
+        final long end = Math.min(Math.addExact(offset, length), existingEntry.length());
+        if (offset >= end) {
+            return;
+        }
+
+        if (existingEntry.isInline()) {
+            final byte[] newData = Arrays.copyOf(existingEntry.inlineData(), existingEntry.inlineData().length);
+            Arrays.fill(newData, Math.toIntExact(offset), Math.toIntExact(end), (byte) 0);
+            writeLengthEntry(txn, fid, DataLengthEntry.inline(newData));
+            return;
+        }
+
+        final int firstPage = Math.toIntExact(offset / pageSize);
+        final int lastPage = Math.toIntExact((end - 1) / pageSize);
+        final int firstPageStart = Math.toIntExact(offset % pageSize);
+        final int lastPageEnd = Math.toIntExact(end - (long) lastPage * pageSize);
+
+        if (firstPage == lastPage) {
+            if (firstPageStart == 0 && lastPageEnd == pageSize) {
+                deletePage(txn, fid, firstPage);
+            } else {
+                zeroPageRange(txn, fid, firstPage, firstPageStart, lastPageEnd);
+            }
+            return;
+        }
+
+        final int firstWholePage = firstPageStart == 0 ? firstPage : firstPage + 1;
+        final int lastWholePage = lastPageEnd == pageSize ? lastPage : lastPage - 1;
+        if (firstPageStart > 0) {
+            zeroPageRange(txn, fid, firstPage, firstPageStart, pageSize);
+        }
+        if (lastPageEnd < pageSize) {
+            zeroPageRange(txn, fid, lastPage, 0, lastPageEnd);
+        }
+        for (final int page : DataStore.storedPages(dataStore, txn, fid, firstWholePage, lastWholePage + 1)) {
+            deletePage(txn, fid, page);
+        }
+        LOGGER.trace(() -> "punched hole id=" + InodeId.prettyPrint(fid) + " offset=" + offset + " end=" + end);
+    }
+
+    /**
+     * Zero the part of a page between {@code start} and {@code end}, positions within the page.
+     */
+    private void zeroPageRange(final Transaction txn, final long fid, final int page, final int start, final int end) {
+        final ByteIterable pageData = readPage(txn, fid, page, false);
+        if (pageData.getLength() <= start) {
+            return;
+        }
+
+        final byte[] newPageData = Arrays.copyOf(pageData.getBytesUnsafe(), pageData.getLength());
+        Arrays.fill(newPageData, start, Math.min(end, newPageData.length), (byte) 0);
+        writePage(txn, fid, page, ByteBuffer.wrap(newPageData));
+    }
+
+    private int writeInline(
+            final Transaction txn,
+            final long fid,
+            final DataLengthEntry lengthEntry,
+            final ByteBuffer buf,
+            final long count,
+            final long offset) {
+        final int intOffset = Math.toIntExact(offset);
+        final int intCount = Math.toIntExact(count);
+        final byte[] existingData = lengthEntry.isInline() ? lengthEntry.inlineData() : new byte[0];
+        final byte[] newData = Arrays.copyOf(existingData, Math.max(existingData.length, intOffset + intCount));
+        buf.get(newData, intOffset, intCount);
+        writeLengthEntry(txn, fid, DataLengthEntry.inline(newData));
+        stats.increment(DataStoreDebugStats.bytesWritten, intCount);
+        stats.increment(DataStoreDebugStats.dataFileInlineWrites);
+        return intCount;
+    }
+
+    /**
+     * Move the contents of an inlined file to the data table once a write grows it past the inline limit.  The inline
+     * limit never exceeds the page size, so the contents always fit the first page.
+     */
+    private void promoteInline(
+            final Transaction txn, final long fid, final DataLengthEntry lengthEntry, final boolean compress) {
+        final byte[] inlineData = lengthEntry.inlineData();
+        if (inlineData.length > 0) {
+            writePage(txn, fid, 0, ByteBuffer.wrap(inlineData), compress);
+        }
+        writeFidLength(txn, fid, inlineData.length);
+        stats.increment(DataStoreDebugStats.dataFileInlinePromotions);
+    }
+
     private void updateLengthIfNeeded(final Transaction txn, final long fid, final long newLength) {
         final long storedLength = readFidLength(txn, fid);
         if (newLength > storedLength) {
@@ -306,36 +554,63 @@ class ByteBufferDataStore implements DataStore {
         }
     }
 
-    private ByteIterable readPage(final Transaction txn, final long fid, final int page) {
-        final ByteIterable blockKey = DataKey.toByteIterable(fid, page);
-        final ByteIterable valueIterable = dataStore.get(txn, blockKey);
+    /**
+     * Read a page, which may be served from the page cache.  Only the read path sets {@code populateCache}, pages
+     * read while preparing a write are about to be replaced.
+     */
+    private ByteIterable readPage(final Transaction txn, final long fid, final int page, final boolean populateCache) {
+        final DataKey dataKey = new DataKey(fid, page);
+        final byte[] cachedData = pageCache.get(txn, dataKey);
+        if (cachedData != null) {
+            return new ArrayByteIterable(cachedData);
+        }
+
+        final ByteIterable valueIterable = dataPages.read(txn, dataKey.toByteIterable());
         stats.increment(DataStoreDebugStats.dataPagesRead);
         final ByteIterable result = valueIterable == null ? ByteIterable.EMPTY : valueIterable;
+        if (populateCache) {
+            pageCache.put(txn, dataKey, Arrays.copyOf(result.getBytesUnsafe(), result.getLength()));
+        }
         logPageOperation("read ", fid, page, () -> result.getBytesUnsafe());
         return result;
     }
 
+    private void deletePage(final Transaction txn, final long fid, final int page) {
+        final DataKey dataKey = new DataKey(fid, page);
+        pageCache.invalidate(txn, dataKey);
+        dataPages.delete(txn, dataKey.toByteIterable());
+    }
+
+    /**
+     * Rewrite a page on behalf of truncate or hole punching, which follow the configured compression.
+     */
     private void writePage(final Transaction txn, final long fid, final int page, final ByteBuffer data) {
-        final ByteIterable blockKey = DataKey.toByteIterable(fid, page);
+        writePage(txn, fid, page, data, true);
+    }
+
+    private void writePage(
+            final Transaction txn, final long fid, final int page, final ByteBuffer data, final boolean compress) {
+        final DataKey dataKey = new DataKey(fid, page);
+        final ByteIterable blockKey = dataKey.toByteIterable();
+        pageCache.invalidate(txn, dataKey);
         final int lastNonNullByte = JavaUtil.suffixNullCount(data);
 
+        // array backed values keep the page readable through getBytesUnsafe() later in the same transaction
         final ByteIterable valueIterable;
-        if (lastNonNullByte == 0) {
+        final int length = data.limit() - lastNonNullByte;
+        if (data.hasArray() && data.arrayOffset() + data.position() == 0) {
+            valueIterable = new ArrayByteIterable(data.array(), length);
+        } else if (lastNonNullByte == 0) {
             valueIterable = new ByteBufferByteIterable(data);
-            stats.increment(DataStoreDebugStats.dataPagesWrite);
         } else {
-            final int length = data.limit() - lastNonNullByte;
-            if (data.hasArray()) {
-                valueIterable = new ArrayByteIterable(data.array(), length);
-            } else {
-                final byte[] byteArray = new byte[length];
-                data.get(byteArray, 0, length);
-                valueIterable = new ArrayByteIterable(byteArray);
-            }
-            stats.increment(DataStoreDebugStats.dataPagesSparseWrite);
+            final byte[] byteArray = new byte[length];
+            data.get(byteArray, 0, length);
+            valueIterable = new ArrayByteIterable(byteArray);
         }
+        stats.increment(
+                lastNonNullByte == 0 ? DataStoreDebugStats.dataPagesWrite : DataStoreDebugStats.dataPagesSparseWrite);
         logPageOperation("write", fid, page, data::array);
-        dataStore.put(txn, blockKey, valueIterable);
+        dataPages.write(txn, blockKey, valueIterable, compress);
     }
 
     private void logPageOperation(final String prefix, final long fid, final int page, final Supplier<byte[]> data) {
@@ -359,13 +634,12 @@ class ByteBufferDataStore implements DataStore {
         LOGGER.trace(msg::toString);
     }
 
-    private int calculateTotalDataPages(final long length) {
-        return Math.toIntExact(Math.divideExact(length, pageSize));
-    }
-
     @Override
     public Map<String, String> runtimeStats() {
-        return stats.debugStats();
+        final Map<String, String> map = new HashMap<>(stats.debugStats());
+        map.putAll(pageCache.runtimeStats());
+        map.putAll(dataPages.runtimeStats());
+        return Map.copyOf(map);
     }
 
     private class DebugOutputter {
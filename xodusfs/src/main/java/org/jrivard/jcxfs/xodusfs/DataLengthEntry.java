@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.bindings.LongBinding;
+
+/**
+ * Value of the data-length table.  A paged file stores only its length, its contents live in the data table.  A file
+ * small enough to be inlined stores its contents directly after the length, so reading it needs no data table lookup
+ * and it occupies no data table record.
+ *
+ * @param length file length in bytes.
+ * @param inlineData file contents for an inlined file, exactly {@code length} bytes, otherwise null.
+ */
+record DataLengthEntry(long length, byte[] inlineData) {
+    private static final int LENGTH_BYTES = Long.BYTES;
+
+    static final DataLengthEntry EMPTY = new DataLengthEntry(0, null);
+
+    DataLengthEntry {
+        if (inlineData != null && inlineData.length != length) {
+            throw new IllegalArgumentException("inline data must match length");
+        }
+    }
+
+    static DataLengthEntry paged(final long length) {
+        return new DataLengthEntry(length, null);
+    }
+
+    static DataLengthEntry inline(final byte[] inlineData) {
+        return new DataLengthEntry(inlineData.length, inlineData);
+    }
+
+    boolean isInline() {
+        return inlineData != null;
+    }
+
+    ByteIterable toByteIterable() {
+        if (inlineData == null) {
+            return LongBinding.longToEntry(length);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(LENGTH_BYTES + inlineData.length);
+        buffer.put(LongBinding.longToEntry(length).getBytesUnsafe(), 0, LENGTH_BYTES);
+        buffer.put(inlineData);
+        return new ArrayByteIterable(buffer.array());
+    }
+
+    /**
+     * Decode a stored value.  A value holding only the length is a paged file, which is also the only form written by
+     * database versions before 5.
+     */
+    static DataLengthEntry fromByteIterable(final ByteIterable byteIterable) {
+        final long length = LongBinding.entryToLong(byteIterable.subIterable(0, LENGTH_BYTES));
+        if (byteIterable.getLength() == LENGTH_BYTES) {
+            return paged(length);
+        }
+
+        final byte[] bytes = byteIterable.getBytesUnsafe();
+        return new DataLengthEntry(length, Arrays.copyOfRange(bytes, LENGTH_BYTES, byteIterable.getLength()));
+    }
+}
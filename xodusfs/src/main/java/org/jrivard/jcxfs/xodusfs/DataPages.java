@@ -0,0 +1,386 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.ByteIterator;
+import jetbrains.exodus.bindings.LongBinding;
+import jetbrains.exodus.env.Cursor;
+import jetbrains.exodus.env.Store;
+import jetbrains.exodus.env.Transaction;
+import org.jrivard.jcxfs.xodusfs.util.StatCounterBundle;
+
+/**
+ * Reads and writes values of the data table.  A value is either the raw page contents with trailing zero bytes
+ * trimmed, or an encoded value ending in a two byte trailer: the encoding type followed by a zero byte.  Raw values
+ * never end in a zero byte, so the two forms can not be confused, and pages written before encodings existed are
+ * still valid raw values.
+ *
+ * <p>A shared value holds the SHA-256 hash of the page contents.  The contents are stored once in the page body table,
+ * keyed by the hash, and the page reference table counts the data table values pointing at each body.  Writing or
+ * deleting a shared page drops its reference instead of touching the body, so shared pages are copy-on-write.</p>
+ *
+ * <p>With page deduplication enabled every page larger than a shared value is written as a shared value, so identical
+ * pages of any file are stored once.</p>
+ *
+ * <p>Page contents, either in the data table or as a shared page body, may be compressed as described by
+ * {@link PageCompressor}.  Hashes are always taken over the uncompressed contents.</p>
+ */
+final class DataPages {
+    static final byte TRAILER_MARK = 0;
+    static final int TRAILER_LENGTH = 2;
+    private static final byte TYPE_SHARED = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final int SHARED_VALUE_LENGTH = HASH_LENGTH + TRAILER_LENGTH;
+
+    enum DataPageStats {
+        sharedPageLinks,
+        sharedPageBodiesCreated,
+        sharedPageBodiesFreed,
+        sharedPageReleases,
+        dedupPageWrites,
+        dedupPageMatches,
+        dedupBytesWritten,
+        dedupBytesStored,
+        dedupHashNanos,
+    }
+
+    private final Store dataStore;
+    private final Store pageBodyStore;
+    private final Store pageRefStore;
+    private final boolean dedupPages;
+    private final PageCompressor pageCompressor;
+    private final StatCounterBundle<DataPageStats> stats = new StatCounterBundle<>(DataPageStats.class);
+
+    /**
+     * False until a page is shared, so that writes to a database without shared pages do not have to read the value
+     * they replace.
+     */
+    private volatile boolean sharedPagesExist;
+
+    DataPages(final EnvironmentWrapper environmentWrapper) throws JcxfsException {
+        this.dataStore = environmentWrapper.getStore(XodusStore.DATA);
+        this.pageBodyStore = environmentWrapper.getStore(XodusStore.PAGE_BODY);
+        this.pageRefStore = environmentWrapper.getStore(XodusStore.PAGE_REF);
+        this.dedupPages = environmentWrapper.runtimeParameters().dedupPages();
+        this.pageCompressor =
+                new PageCompressor(environmentWrapper.runtimeParameters().pageCompression());
+
+        if (dedupPages) {
+            sharedPagesExist = true;
+        } else if (pageRefStore != null) {
+            try {
+                sharedPagesExist = environmentWrapper.doRead(txn -> pageRefStore.count(txn) > 0);
+            } catch (final FileOpException e) {
+                throw new JcxfsException("error reading shared page references: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    Store dataStore() {
+        return dataStore;
+    }
+
+    /**
+     * @return the page contents with trailing zero bytes trimmed, or null if the page is not stored.
+     */
+    ByteIterable read(final Transaction txn, final ByteIterable key) {
+        final ByteIterable value = dataStore.get(txn, key);
+        return value == null ? null : decode(txn, value);
+    }
+
+    /**
+     * Store page contents, which must already have trailing zero bytes trimmed.  When {@code compress} is false the
+     * contents are stored uncompressed regardless of the configured page compression.
+     */
+    void write(final Transaction txn, final ByteIterable key, final ByteIterable contents, final boolean compress) {
+        if (dedupPages && contents.getLength() > SHARED_VALUE_LENGTH) {
+            writeDeduplicated(txn, key, contents, compress);
+            return;
+        }
+
+        final ByteIterable value = encode(contents, compress);
+        releaseExisting(txn, key);
+        dataStore.put(txn, key, value);
+    }
+
+    private void writeDeduplicated(
+            final Transaction txn, final ByteIterable key, final ByteIterable contents, final boolean compress) {
+        final long startNanos = System.nanoTime();
+        final ByteIterable hash = hash(contents);
+        stats.increment(DataPageStats.dedupHashNanos, System.nanoTime() - startNanos);
+        stats.increment(DataPageStats.dedupPageWrites);
+        stats.increment(DataPageStats.dedupBytesWritten, contents.getLength());
+
+        final ByteIterable sharedValue = sharedValue(hash);
+        final ByteIterable existingValue = dataStore.get(txn, key);
+        if (existingValue != null && existingValue.compareTo(sharedValue) == 0) {
+            stats.increment(DataPageStats.dedupPageMatches);
+            return;
+        }
+
+        if (addReference(txn, hash, () -> encode(copyOf(contents), compress))) {
+            stats.increment(DataPageStats.dedupBytesStored, contents.getLength());
+        } else {
+            stats.increment(DataPageStats.dedupPageMatches);
+        }
+        releaseExisting(txn, key);
+        dataStore.put(txn, key, sharedValue);
+    }
+
+    void delete(final Transaction txn, final ByteIterable key) {
+        releaseExisting(txn, key);
+        dataStore.delete(txn, key);
+    }
+
+    /**
+     * Read {@code pageCount} pages starting at {@code firstPage} with a single cursor range scan.  Pages that are not
+     * stored are returned as null, stored pages are returned as full page length copies.
+     */
+    byte[][] readRange(
+            final Transaction txn, final long fid, final int firstPage, final int pageCount, final int pageSize) {
+        final byte[][] pages = new byte[pageCount][];
+        try (final Cursor cursor = dataStore.openCursor(txn)) {
+            boolean found = cursor.getSearchKeyRange(DataKey.toByteIterable(fid, firstPage)) != null;
+            while (found) {
+                final DataKey dataKey = DataKey.fromByteIterable(cursor.getKey());
+                if (dataKey.fid() != fid || dataKey.page() >= firstPage + pageCount) {
+                    break;
+                }
+                final ByteIterable value = decode(txn, cursor.getValue());
+                final byte[] page = new byte[pageSize];
+                System.arraycopy(value.getBytesUnsafe(), 0, page, 0, value.getLength());
+                pages[dataKey.page() - firstPage] = page;
+                found = cursor.getNext();
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * Make a run of target pages reference the contents of the matching source pages without copying them.  Target
+     * pages matching a source hole are deleted.
+     *
+     * @return the target pages that were changed.
+     */
+    List<Integer> sharePages(
+            final Transaction txn,
+            final long sourceFid,
+            final int firstSourcePage,
+            final long targetFid,
+            final int firstTargetPage,
+            final int pageCount) {
+        sharedPagesExist = true;
+
+        final List<Integer> changedPages = new ArrayList<>();
+        final Set<Integer> sharedTargetPages = new HashSet<>();
+        for (final int sourcePage :
+                DataStore.storedPages(dataStore, txn, sourceFid, firstSourcePage, firstSourcePage + pageCount)) {
+            final int targetPage = sourcePage - firstSourcePage + firstTargetPage;
+            share(txn, DataKey.toByteIterable(sourceFid, sourcePage), DataKey.toByteIterable(targetFid, targetPage));
+            sharedTargetPages.add(targetPage);
+            changedPages.add(targetPage);
+        }
+
+        for (final int targetPage :
+                DataStore.storedPages(dataStore, txn, targetFid, firstTargetPage, firstTargetPage + pageCount)) {
+            if (!sharedTargetPages.contains(targetPage)) {
+                delete(txn, DataKey.toByteIterable(targetFid, targetPage));
+                changedPages.add(targetPage);
+            }
+        }
+
+        return changedPages;
+    }
+
+    private void share(final Transaction txn, final ByteIterable sourceKey, final ByteIterable targetKey) {
+        // copied, values written earlier in the transaction may not expose a backing array
+        final ByteIterable sourceValue = copyOf(dataStore.get(txn, sourceKey));
+        final ByteIterable sharedValue;
+        if (isShared(sourceValue)) {
+            sharedValue = sourceValue;
+        } else {
+            // the body keeps the source value as stored, compressed or not
+            final ByteIterable hash = hash(decode(txn, sourceValue));
+            addReference(txn, hash, () -> sourceValue);
+            sharedValue = sharedValue(hash);
+            dataStore.put(txn, sourceKey, sharedValue);
+        }
+
+        // the new reference is counted before the old one is released, the target may already share the same body
+        addReference(txn, sharedHash(sharedValue), null);
+        releaseExisting(txn, targetKey);
+        dataStore.put(txn, targetKey, sharedValue);
+        stats.increment(DataPageStats.sharedPageLinks);
+    }
+
+    private ByteIterable encode(final ByteIterable contents, final boolean compress) {
+        final ByteIterable compressed = compress ? pageCompressor.compress(contents) : null;
+        return compressed == null ? contents : compressed;
+    }
+
+    private ByteIterable decode(final Transaction txn, final ByteIterable value) {
+        if (!isEncoded(value)) {
+            return value;
+        }
+
+        final byte type = byteAt(value, value.getLength() - 2);
+        if (type == TYPE_SHARED) {
+            final ByteIterable body = pageBodyStore.get(txn, sharedHash(value));
+            if (body == null) {
+                throw new IllegalStateException("missing shared page body");
+            }
+            // bodies are never shared values themselves, but may be compressed
+            return decode(txn, body);
+        }
+        if (type == PageCompressor.TYPE_DEFLATE) {
+            return pageCompressor.decompress(value);
+        }
+        throw new IllegalStateException("unknown data page encoding " + type);
+    }
+
+    private void releaseExisting(final Transaction txn, final ByteIterable key) {
+        if (!sharedPagesExist) {
+            return;
+        }
+
+        final ByteIterable existingValue = dataStore.get(txn, key);
+        if (existingValue != null && isShared(existingValue)) {
+            release(txn, sharedHash(existingValue));
+        }
+    }
+
+    /**
+     * Count a reference to a page body, storing the body supplied by {@code body} if it is the first reference.
+     *
+     * @return true if the body was stored.
+     */
+    private boolean addReference(final Transaction txn, final ByteIterable hash, final Supplier<ByteIterable> body) {
+        final long references = readReferences(txn, hash);
+        if (references == 0) {
+            if (body == null) {
+                throw new IllegalStateException("missing shared page reference count");
+            }
+            pageBodyStore.put(txn, hash, body.get());
+            stats.increment(DataPageStats.sharedPageBodiesCreated);
+        }
+        pageRefStore.put(txn, hash, LongBinding.longToCompressedEntry(references + 1));
+        return references == 0;
+    }
+
+    private void release(final Transaction txn, final ByteIterable hash) {
+        final long references = readReferences(txn, hash) - 1;
+        if (references > 0) {
+            pageRefStore.put(txn, hash, LongBinding.longToCompressedEntry(references));
+        } else {
+            pageRefStore.delete(txn, hash);
+            pageBodyStore.delete(txn, hash);
+            stats.increment(DataPageStats.sharedPageBodiesFreed);
+        }
+        stats.increment(DataPageStats.sharedPageReleases);
+    }
+
+    private long readReferences(final Transaction txn, final ByteIterable hash) {
+        final ByteIterable value = pageRefStore.get(txn, hash);
+        return value == null ? 0 : LongBinding.compressedEntryToLong(value);
+    }
+
+    private static boolean isEncoded(final ByteIterable value) {
+        final int length = value.getLength();
+        return length >= TRAILER_LENGTH && byteAt(value, length - 1) == TRAILER_MARK;
+    }
+
+    private static boolean isShared(final ByteIterable value) {
+        return value != null && isEncoded(value) && byteAt(value, value.getLength() - 2) == TYPE_SHARED;
+    }
+
+    private static ByteIterable sharedHash(final ByteIterable sharedValue) {
+        return new ArrayByteIterable(sharedValue.getBytesUnsafe(), HASH_LENGTH);
+    }
+
+    private static ByteIterable sharedValue(final ByteIterable hash) {
+        final byte[] value = new byte[HASH_LENGTH + TRAILER_LENGTH];
+        System.arraycopy(hash.getBytesUnsafe(), 0, value, 0, HASH_LENGTH);
+        value[HASH_LENGTH] = TYPE_SHARED;
+        value[HASH_LENGTH + 1] = TRAILER_MARK;
+        return new ArrayByteIterable(value);
+    }
+
+    static ByteIterable hash(final ByteIterable contents) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytesOf(contents), 0, contents.getLength());
+            return new ArrayByteIterable(digest.digest());
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("missing SHA-256 message digest", e);
+        }
+    }
+
+    private static ByteIterable copyOf(final ByteIterable value) {
+        return new ArrayByteIterable(value.iterator(), value.getLength());
+    }
+
+    /**
+     * @return an array holding the value from index 0, the value's own array when it has one.
+     */
+    static byte[] bytesOf(final ByteIterable value) {
+        return value instanceof ArrayByteIterable
+                ? value.getBytesUnsafe()
+                : copyOf(value).getBytesUnsafe();
+    }
+
+    private static byte byteAt(final ByteIterable value, final int index) {
+        final ByteIterator iterator = value.iterator();
+        iterator.skip(index);
+        return iterator.next();
+    }
+
+    Map<String, String> runtimeStats() {
+        final Map<String, String> map = new HashMap<>(stats.debugStats());
+        map.putAll(pageCompressor.runtimeStats());
+        if (!dedupPages) {
+            return Map.copyOf(map);
+        }
+
+        final long bytesStored = stats.get(DataPageStats.dedupBytesStored);
+        final long pageWrites = stats.get(DataPageStats.dedupPageWrites);
+        final NumberFormat numberFormat = NumberFormat.getNumberInstance();
+        numberFormat.setMaximumFractionDigits(2);
+        if (bytesStored > 0) {
+            map.put(
+                    "dedupRatio",
+                    numberFormat.format((double) stats.get(DataPageStats.dedupBytesWritten) / bytesStored));
+        }
+        if (pageWrites > 0) {
+            map.put(
+                    "dedupHashNanosPerWrite",
+                    numberFormat.format(stats.get(DataPageStats.dedupHashNanos) / pageWrites));
+        }
+        return Map.copyOf(map);
+    }
+}
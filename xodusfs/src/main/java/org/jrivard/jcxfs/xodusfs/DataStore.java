@@ -17,9 +17,16 @@
 package org.jrivard.jcxfs.xodusfs;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jetbrains.exodus.env.Cursor;
+import jetbrains.exodus.env.Store;
 import jetbrains.exodus.env.Transaction;
 
 interface DataStore extends StoreBucket {
+    int COPY_CHUNK_BYTES = 1024 * 1024;
+
     enum DataStoreImplType {
         byte_array,
         byte_buffer,
@@ -39,9 +46,208 @@ interface DataStore extends StoreBucket {
 
     void deleteEntry(Transaction txn, long nodeId);
 
-    int readData(Transaction txn, long nodeId, ByteBuffer outputBuffer, long count, long offset);
+    default int readData(Transaction txn, long nodeId, ByteBuffer outputBuffer, long count, long offset) {
+        return readData(txn, nodeId, outputBuffer, count, offset, true);
+    }
+
+    /**
+     * Read file data, when {@code cachePages} is false pages missing from the page cache are not added to it, used
+     * by streaming reads that would otherwise push the working set out of the cache.
+     */
+    int readData(Transaction txn, long nodeId, ByteBuffer outputBuffer, long count, long offset, boolean cachePages);
+
+    /**
+     * Read {@code pageCount} pages starting at {@code firstPage} with a single cursor range scan.  Pages that are
+     * not stored are returned as null, stored pages are returned as full page length copies.
+     */
+    byte[][] readPages(Transaction txn, long nodeId, int firstPage, int pageCount);
+
+    default int writeData(Transaction txn, long nodeId, ByteBuffer inputBuffer, long count, long offset) {
+        return writeData(txn, nodeId, inputBuffer, count, offset, true);
+    }
+
+    /**
+     * Write file data, when {@code compressPages} is false the written pages are stored uncompressed regardless of the
+     * configured {@link PageCompression}, used for files opted out of compression.
+     */
+    int writeData(Transaction txn, long nodeId, ByteBuffer inputBuffer, long count, long offset, boolean compressPages);
+
+    /**
+     * Find the next offset at or after {@code offset} holding data.  Holes are tracked per page, so a partly written
+     * page counts as data in full.
+     *
+     * @return the offset, or -1 if {@code offset} is at or past the end of the file or only holes follow it.
+     */
+    long seekData(Transaction txn, long nodeId, long offset);
+
+    /**
+     * Find the next offset at or after {@code offset} in a hole, the end of the file counts as a hole.
+     *
+     * @return the offset, or -1 if {@code offset} is at or past the end of the file.
+     */
+    long seekHole(Transaction txn, long nodeId, long offset);
+
+    /**
+     * Make sure the range can be read, extending the file to its end unless {@code keepSize} is set.  Pages are not
+     * written, unwritten pages already read as zeros and the log structured store has no space to reserve ahead of
+     * the writes that fill them.
+     */
+    void allocate(Transaction txn, long nodeId, long offset, long length, boolean keepSize);
 
-    int writeData(Transaction txn, long nodeId, ByteBuffer inputBuffer, long count, long offset);
+    /**
+     * Zero a range without changing the file length.  Whole pages in the range are deleted, pages at the edges of the
+     * range are rewritten with the range zeroed.
+     */
+    void punchHole(Transaction txn, long nodeId, long offset, long length);
+
+    /**
+     * Copy a range from one file to another, as copy_file_range(2).  Whole pages are shared with the source rather
+     * than copied when the two ranges have the same alignment within a page.  The ranges must not overlap.
+     *
+     * @return the number of bytes copied, less than {@code length} if the source ends first.
+     */
+    long copyRange(Transaction txn, long sourceFid, long sourceOffset, long targetFid, long targetOffset, long length);
 
     long totalPagesUsed(Transaction txn);
+
+    /**
+     * Present the contents of an inlined file as the page range {@link #readPages(Transaction, long, int, int)} would
+     * return for the same data stored in pages.
+     */
+    static byte[][] inlinePageRange(
+            final byte[] inlineData, final int firstPage, final int pageCount, final int pageSize) {
+        final byte[][] pages = new byte[pageCount][];
+        if (firstPage == 0 && pageCount > 0 && inlineData.length > 0) {
+            pages[0] = Arrays.copyOf(inlineData, pageSize);
+        }
+        return pages;
+    }
+
+    /**
+     * Copy a range by reading and rewriting its bytes, used for the parts of a copy that can not share whole pages.
+     */
+    static long copyBytes(
+            final DataStore dataStore,
+            final Transaction txn,
+            final long sourceFid,
+            final long sourceOffset,
+            final long targetFid,
+            final long targetOffset,
+            final long count) {
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(Math.min(count, COPY_CHUNK_BYTES)));
+        long copied = 0;
+        while (copied < count) {
+            buffer.clear();
+            final int chunkLength = Math.toIntExact(Math.min(buffer.capacity(), count - copied));
+            final int read = dataStore.readData(txn, sourceFid, buffer, chunkLength, sourceOffset + copied, false);
+            if (read <= 0) {
+                break;
+            }
+            buffer.flip();
+            dataStore.writeData(txn, targetFid, buffer, read, targetOffset + copied);
+            copied += read;
+        }
+        return copied;
+    }
+
+    /**
+     * Shared implementation of {@link #seekData(Transaction, long, long)} over the page keys of the data table.
+     */
+    static long seekData(
+            final Store dataStore,
+            final Transaction txn,
+            final long fid,
+            final DataLengthEntry lengthEntry,
+            final long offset,
+            final int pageSize) {
+        if (offset < 0 || offset >= lengthEntry.length()) {
+            return -1;
+        }
+        if (lengthEntry.isInline()) {
+            return offset;
+        }
+
+        final int dataPage = nextStoredPage(dataStore, txn, fid, Math.toIntExact(offset / pageSize));
+        if (dataPage == Integer.MAX_VALUE) {
+            return -1;
+        }
+        final long dataOffset = Math.max(offset, (long) dataPage * pageSize);
+        return dataOffset < lengthEntry.length() ? dataOffset : -1;
+    }
+
+    /**
+     * Shared implementation of {@link #seekHole(Transaction, long, long)} over the page keys of the data table.
+     */
+    static long seekHole(
+            final Store dataStore,
+            final Transaction txn,
+            final long fid,
+            final DataLengthEntry lengthEntry,
+            final long offset,
+            final int pageSize) {
+        if (offset < 0 || offset >= lengthEntry.length()) {
+            return -1;
+        }
+        if (lengthEntry.isInline()) {
+            return lengthEntry.length();
+        }
+
+        final int holePage = nextMissingPage(dataStore, txn, fid, Math.toIntExact(offset / pageSize));
+        return Math.min(Math.max(offset, (long) holePage * pageSize), lengthEntry.length());
+    }
+
+    /**
+     * The data table keys of a file sort by page, so a single cursor seek finds the end of a hole without probing
+     * each page in it.
+     *
+     * @return the first stored page at or after {@code fromPage}, or {@link Integer#MAX_VALUE} if there is none.
+     */
+    static int nextStoredPage(final Store dataStore, final Transaction txn, final long fid, final int fromPage) {
+        try (final Cursor cursor = dataStore.openCursor(txn)) {
+            if (cursor.getSearchKeyRange(DataKey.toByteIterable(fid, fromPage)) == null) {
+                return Integer.MAX_VALUE;
+            }
+            final DataKey dataKey = DataKey.fromByteIterable(cursor.getKey());
+            return dataKey.fid() == fid ? dataKey.page() : Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return the first page at or after {@code fromPage} that is not stored.
+     */
+    static int nextMissingPage(final Store dataStore, final Transaction txn, final long fid, final int fromPage) {
+        int expectedPage = fromPage;
+        try (final Cursor cursor = dataStore.openCursor(txn)) {
+            boolean found = cursor.getSearchKeyRange(DataKey.toByteIterable(fid, fromPage)) != null;
+            while (found) {
+                final DataKey dataKey = DataKey.fromByteIterable(cursor.getKey());
+                if (dataKey.fid() != fid || dataKey.page() != expectedPage) {
+                    break;
+                }
+                expectedPage++;
+                found = cursor.getNext();
+            }
+        }
+        return expectedPage;
+    }
+
+    /**
+     * @return the stored pages of a file from {@code fromPage} up to but excluding {@code toPage}, in page order.
+     */
+    static List<Integer> storedPages(
+            final Store dataStore, final Transaction txn, final long fid, final int fromPage, final int toPage) {
+        final List<Integer> pages = new ArrayList<>();
+        try (final Cursor cursor = dataStore.openCursor(txn)) {
+            boolean found = cursor.getSearchKeyRange(DataKey.toByteIterable(fid, fromPage)) != null;
+            while (found) {
+                final DataKey dataKey = DataKey.fromByteIterable(cursor.getKey());
+                if (dataKey.fid() != fid || dataKey.page() >= toPage) {
+                    break;
+                }
+                pages.add(dataKey.page());
+                found = cursor.getNext();
+            }
+        }
+        return pages;
+    }
 }
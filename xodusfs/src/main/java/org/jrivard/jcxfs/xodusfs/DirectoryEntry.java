@@ -0,0 +1,30 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import java.util.Objects;
+
+/**
+ * A directory child as returned by {@link XodusFs#readDirectory(String)}, including the attributes and length of the
+ * child so that callers do not need to resolve each child again.
+ */
+public record DirectoryEntry(String name, long nodeId, InodeEntry inodeEntry, long length) {
+    public DirectoryEntry {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(inodeEntry);
+    }
+}
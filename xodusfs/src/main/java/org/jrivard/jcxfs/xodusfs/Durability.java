@@ -0,0 +1,61 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+/**
+ * When committed transactions are forced to disk.  Regardless of mode, xodus also syncs its log periodically in the
+ * background.
+ */
+public enum Durability {
+    /**
+     * Never sync explicitly, fsync requests from applications return without waiting for the disk.  The default.
+     */
+    async(false, false),
+
+    /**
+     * Sync the log when an application fsyncs a file or directory.  Closing a file only commits its buffered writes.
+     */
+    flush(true, false),
+
+    /**
+     * Sync the log on every commit.
+     */
+    sync(false, true),
+    ;
+
+    private final boolean syncOnRequest;
+    private final boolean durableCommits;
+
+    Durability(final boolean syncOnRequest, final boolean durableCommits) {
+        this.syncOnRequest = syncOnRequest;
+        this.durableCommits = durableCommits;
+    }
+
+    /**
+     * @return true if an explicit fsync must sync the log.
+     */
+    public boolean syncOnRequest() {
+        return syncOnRequest;
+    }
+
+    /**
+     * @return true if xodus must sync the log as part of every commit.
+     */
+    public boolean durableCommits() {
+        return durableCommits;
+    }
+}
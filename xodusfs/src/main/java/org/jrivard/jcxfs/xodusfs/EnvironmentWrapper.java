@@ -18,14 +18,24 @@ package org.jrivard.jcxfs.xodusfs;
 
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -33,12 +43,14 @@ import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.bindings.StringBinding;
 import jetbrains.exodus.env.Cursor;
 import jetbrains.exodus.env.Environment;
+import jetbrains.exodus.env.EnvironmentImpl;
 import jetbrains.exodus.env.Store;
 import jetbrains.exodus.env.StoreConfig;
 import jetbrains.exodus.env.Transaction;
 import jetbrains.exodus.env.TransactionalComputable;
 import jetbrains.exodus.env.TransactionalExecutable;
 import org.jrivard.jcxfs.xodusfs.util.JsonUtil;
+import org.jrivard.jcxfs.xodusfs.util.StatCounterBundle;
 import org.jrivard.jcxfs.xodusfs.util.XodusFsLogger;
 import org.slf4j.event.Level;
 
@@ -47,6 +59,10 @@ public class EnvironmentWrapper {
 
     private static final ByteIterable KEY_XODUS_FS_PARAMS = StringBinding.stringToEntry("XODUS_FS_PARAMS");
 
+    private static final int GROUP_COMMIT_MAX_MUTATIONS = 64;
+    private static final long SNAPSHOT_REFRESH_MS = 10_000;
+    private static final int MAX_IDLE_SNAPSHOTS = 16;
+
     private final Environment environment;
     private final RuntimeParameters runtimeParameters;
     private final StoredExternalEnvParams envParams;
@@ -55,6 +71,63 @@ public class EnvironmentWrapper {
     private final AtomicInteger ACTIVE_OPERATIONS = new AtomicInteger(0);
     private final AtomicInteger OPEN_ITERATORS = new AtomicInteger(0);
 
+    /**
+     * Mutating operations hold this lock for the full transaction including commit, so writers never hit xodus commit
+     * conflicts.  Read operations run in readonly transactions without taking it.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Guards the store caches against readers whose snapshot is older than the latest commit.  A committing writer
+     * takes the write lock to advance {@link #commitEpoch} and apply its cache journal.  A reader only puts into a
+     * cache while holding the read lock and only if the epoch is unchanged since its transaction began, otherwise a
+     * newer commit may already have invalidated the value it read.
+     */
+    private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
+
+    private volatile long commitEpoch;
+
+    /**
+     * Commit epoch covered by the last explicit sync, starts below any epoch so the first sync also covers the
+     * stores created on open.
+     */
+    private final AtomicLong syncedEpoch = new AtomicLong(-1);
+
+    /**
+     * Commit epoch observed by each open read transaction before it began.
+     */
+    private final Map<Transaction, Long> readerEpochs = new ConcurrentHashMap<>();
+
+    /**
+     * Mutations waiting for the write lock.  Whichever waiting thread gets the lock first runs all queued mutations,
+     * up to a cap, in a single transaction and commit.  The other waiters then find their mutation already complete
+     * when they get the lock in turn.  Mutations that arrive while a commit is in flight are therefore committed
+     * together, without adding any latency to a lone mutation.
+     */
+    private final Queue<PendingMutation<?>> pendingMutations = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Cache journal of each open write transaction, see {@link StoreCache}.
+     */
+    private final Map<Transaction, StoreCache.Journal> cacheJournals = new ConcurrentHashMap<>();
+
+    private final StatCounterBundle<CommitStats> commitStats = new StatCounterBundle<>(CommitStats.class);
+
+    /**
+     * On readonly mounts nothing can change the environment, so reads borrow an open readonly transaction from this
+     * pool instead of starting a transaction per operation.  At most {@link #MAX_IDLE_SNAPSHOTS}
+     * are kept between reads, and a snapshot is aborted once it is older than {@link #SNAPSHOT_REFRESH_MS}, so
+     * snapshots are not left open by threads that stop reading.
+     */
+    private final Deque<PinnedSnapshot> idleSnapshots = new ConcurrentLinkedDeque<>();
+
+    enum CommitStats {
+        groupCommits,
+        groupCommitMutations,
+        groupCommitReruns,
+        syncs,
+    }
+
     private final Map<XodusStore, Store> storeCache;
 
     private EnvironmentWrapper(
@@ -95,6 +168,11 @@ public class EnvironmentWrapper {
 
         environment.executeInTransaction(txn -> {
             for (final XodusStore xodusStore : XodusStore.values()) {
+                if (environment.getEnvironmentConfig().getEnvIsReadonly()
+                        && !environment.storeExists(xodusStore.name(), txn)) {
+                    // stores added by a newer version can not be created in a readonly environment
+                    continue;
+                }
                 final Store store = environment.openStore(xodusStore.name(), xodusStore.getStoreConfig(), txn);
                 map.put(xodusStore, store);
             }
@@ -103,6 +181,34 @@ public class EnvironmentWrapper {
         return Map.copyOf(map);
     }
 
+    /**
+     * Force committed transactions to disk, if the configured {@link Durability} honours explicit sync requests and
+     * anything has been committed since the last sync.
+     */
+    void sync() {
+        if (runtimeParameters.readonly() || !runtimeParameters.durability().syncOnRequest()) {
+            return;
+        }
+
+        if (!environmentOpen.get()) {
+            throw new IllegalStateException("cannot initiate operation while environment is closed");
+        }
+
+        final long epoch = commitEpoch;
+        if (epoch == syncedEpoch.get()) {
+            return;
+        }
+
+        ACTIVE_OPERATIONS.incrementAndGet();
+        try {
+            ((EnvironmentImpl) environment).flushAndSync();
+            syncedEpoch.accumulateAndGet(epoch, Math::max);
+            commitStats.increment(CommitStats.syncs);
+        } finally {
+            ACTIVE_OPERATIONS.decrementAndGet();
+        }
+    }
+
     public Path envPath() {
         return runtimeParameters.path();
     }
@@ -133,6 +239,10 @@ public class EnvironmentWrapper {
             }
         }
 
+        for (PinnedSnapshot snapshot = idleSnapshots.poll(); snapshot != null; snapshot = idleSnapshots.poll()) {
+            snapshot.txn().abort();
+        }
+
         this.environment.close();
     }
 
@@ -147,18 +257,243 @@ public class EnvironmentWrapper {
     }
 
     <R> R doCompute(final TransactionalComputable<R> computable) throws FileOpException {
+        if (writeLock.isHeldByCurrentThread()) {
+            // nested mutation, the enclosing batch is still running on this thread
+            return doComputeImpl(computable);
+        }
+
+        if (!environmentOpen.get()) {
+            throw new IllegalStateException("cannot initiate operation while environment is closed");
+        }
+
+        final PendingMutation<R> mutation = new PendingMutation<>(computable);
+        pendingMutations.add(mutation);
+
+        writeLock.lock();
+        try {
+            ACTIVE_OPERATIONS.incrementAndGet();
+            while (!mutation.isComplete()) {
+                commitPendingMutations();
+            }
+        } finally {
+            ACTIVE_OPERATIONS.decrementAndGet();
+            writeLock.unlock();
+        }
+
+        return mutation.result();
+    }
+
+    /**
+     * Run a batch of queued mutations in one transaction.  A mutation that throws is completed with its error and
+     * the transaction is aborted and re-run without it, so one failing caller does not affect the rest of the batch.
+     * Mutations must therefore be safe to re-run: they may only change in-memory state, including the position of a
+     * caller's buffer, through the transaction's cache journal and {@link #afterCommit}, which the abort discards, or
+     * after {@link #doCompute} has returned.  Must be called with the write lock held.
+     */
+    private void commitPendingMutations() {
+        final List<PendingMutation<?>> batch = new ArrayList<>();
+        while (batch.size() < GROUP_COMMIT_MAX_MUTATIONS) {
+            final PendingMutation<?> mutation = pendingMutations.poll();
+            if (mutation == null) {
+                break;
+            }
+            batch.add(mutation);
+        }
+
+        commitStats.increment(CommitStats.groupCommits);
+        commitStats.increment(CommitStats.groupCommitMutations, batch.size());
+
+        while (!batch.isEmpty()) {
+            try {
+                computeInWriteTransaction(txn -> {
+                    batch.forEach(mutation -> mutation.compute(txn));
+                    return null;
+                });
+                batch.forEach(PendingMutation::succeed);
+                return;
+            } catch (final MutationFailedException e) {
+                batch.remove(e.mutation());
+                commitStats.increment(CommitStats.groupCommitReruns);
+            } catch (final RuntimeException | Error e) {
+                LOGGER.debug(() -> "error committing transaction: " + e.getMessage(), e);
+                batch.forEach(mutation -> mutation.fail(e));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Run a write transaction, applying its cache journal once it has committed.  Xodus re-runs the computable if the
+     * commit conflicts, so each attempt starts with an empty journal.  Must be called with the write lock held.
+     */
+    private <R> R computeInWriteTransaction(final TransactionalComputable<R> computable) {
+        final StoreCache.Journal journal = new StoreCache.Journal();
+        final R result = environment.computeInTransaction(txn -> {
+            journal.clear();
+            cacheJournals.put(txn, journal);
+            try {
+                return computable.compute(txn);
+            } finally {
+                cacheJournals.remove(txn);
+            }
+        });
+
+        cacheLock.writeLock().lock();
+        try {
+            commitEpoch++;
+            journal.apply();
+        } finally {
+            cacheLock.writeLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * The cache journal of {@code txn}, or null for a readonly transaction.
+     */
+    StoreCache.Journal cacheJournal(final Transaction txn) {
+        return txn.isReadonly() ? null : cacheJournals.get(txn);
+    }
+
+    /**
+     * Run {@code action} once the write transaction {@code txn} has committed, it is dropped if the transaction
+     * aborts.  Used for in-memory state that must only reflect committed changes.
+     */
+    void afterCommit(final Transaction txn, final Runnable action) {
+        final StoreCache.Journal journal = cacheJournal(txn);
+        if (journal == null) {
+            throw new IllegalStateException("afterCommit requires a write transaction");
+        }
+        journal.record(action);
+    }
+
+    /**
+     * Put a value read by the readonly transaction {@code txn} into a store cache, unless a write has committed since
+     * the transaction began.
+     */
+    void putIfCurrent(final Transaction txn, final Runnable put) {
+        if (runtimeParameters.readonly()) {
+            // nothing commits on a readonly mount
+            put.run();
+            return;
+        }
+
+        final Long epoch = readerEpochs.get(txn);
+        if (epoch == null) {
+            return;
+        }
+        cacheLock.readLock().lock();
+        try {
+            if (epoch == commitEpoch) {
+                put.run();
+            }
+        } finally {
+            cacheLock.readLock().unlock();
+        }
+    }
+
+    int pendingMutationCount() {
+        return pendingMutations.size();
+    }
+
+    StatCounterBundle<CommitStats> commitStats() {
+        return commitStats;
+    }
+
+    /**
+     * Run a query in a readonly transaction.  The computable must not modify the environment.
+     */
+    <R> R doRead(final TransactionalComputable<R> computable) throws FileOpException {
+        if (runtimeParameters.readonly()) {
+            return doSnapshotRead(computable);
+        }
+
         if (!environmentOpen.get()) {
             throw new IllegalStateException("cannot initiate operation while environment is closed");
         }
 
+        ACTIVE_OPERATIONS.incrementAndGet();
+        final long epoch = commitEpoch;
+        final Transaction txn = environment.beginReadonlyTransaction();
+        readerEpochs.put(txn, epoch);
+        try {
+            return computable.compute(txn);
+        } catch (final RuntimeXodusFsException e) {
+            LOGGER.debug(() -> "error computing transaction: " + e.getMessage(), e);
+            throw e.asXodusFsException();
+        } finally {
+            readerEpochs.remove(txn);
+            txn.abort();
+            ACTIVE_OPERATIONS.decrementAndGet();
+        }
+    }
+
+    private <R> R doSnapshotRead(final TransactionalComputable<R> computable) throws FileOpException {
+        if (!environmentOpen.get()) {
+            throw new IllegalStateException("cannot initiate operation while environment is closed");
+        }
+
+        ACTIVE_OPERATIONS.incrementAndGet();
+        final PinnedSnapshot snapshot = borrowSnapshot();
+        try {
+            return computable.compute(snapshot.txn());
+        } catch (final RuntimeXodusFsException e) {
+            LOGGER.debug(() -> "error computing transaction: " + e.getMessage(), e);
+            throw e.asXodusFsException();
+        } finally {
+            returnSnapshot(snapshot);
+            ACTIVE_OPERATIONS.decrementAndGet();
+        }
+    }
+
+    private PinnedSnapshot borrowSnapshot() {
+        for (PinnedSnapshot idle = idleSnapshots.pollFirst(); idle != null; idle = idleSnapshots.pollFirst()) {
+            if (!idle.isStale()) {
+                return idle;
+            }
+            idle.txn().abort();
+        }
+        return new PinnedSnapshot(environment.beginReadonlyTransaction(), System.currentTimeMillis());
+    }
+
+    private void returnSnapshot(final PinnedSnapshot snapshot) {
+        if (snapshot.isStale() || idleSnapshots.size() >= MAX_IDLE_SNAPSHOTS) {
+            snapshot.txn().abort();
+            return;
+        }
+        idleSnapshots.offerFirst(snapshot);
+
+        // recently used snapshots are reused first, so unused ones age at the tail
+        for (PinnedSnapshot oldest = idleSnapshots.peekLast();
+                oldest != null && oldest.isStale();
+                oldest = idleSnapshots.peekLast()) {
+            if (idleSnapshots.removeLastOccurrence(oldest)) {
+                oldest.txn().abort();
+            }
+        }
+    }
+
+    private record PinnedSnapshot(Transaction txn, long pinnedAt) {
+        boolean isStale() {
+            return System.currentTimeMillis() - pinnedAt >= SNAPSHOT_REFRESH_MS;
+        }
+    }
+
+    private <R> R doComputeImpl(final TransactionalComputable<R> computable) throws FileOpException {
+        if (!environmentOpen.get()) {
+            throw new IllegalStateException("cannot initiate operation while environment is closed");
+        }
+
+        writeLock.lock();
         try {
             ACTIVE_OPERATIONS.incrementAndGet();
-            return environment.computeInTransaction(computable);
+            return computeInWriteTransaction(computable);
         } catch (final RuntimeXodusFsException e) {
             LOGGER.debug(() -> "error computing transaction: " + e.getMessage(), e);
             throw e.asXodusFsException();
         } finally {
             ACTIVE_OPERATIONS.decrementAndGet();
+            writeLock.unlock();
         }
     }
 
@@ -169,6 +504,71 @@ public class EnvironmentWrapper {
         });
     }
 
+    /**
+     * A mutation submitted to {@link #doCompute(TransactionalComputable)}.  Fields are written by the thread running
+     * the batch and read by the submitting thread, both under the write lock.
+     */
+    private static final class PendingMutation<R> {
+        private final TransactionalComputable<R> computable;
+        private R result;
+        private Throwable error;
+        private boolean complete;
+
+        PendingMutation(final TransactionalComputable<R> computable) {
+            this.computable = computable;
+        }
+
+        void compute(final Transaction txn) {
+            try {
+                result = computable.compute(txn);
+            } catch (final RuntimeException | Error e) {
+                error = e;
+                complete = true;
+                throw new MutationFailedException(this);
+            }
+        }
+
+        void succeed() {
+            complete = true;
+        }
+
+        void fail(final Throwable t) {
+            error = t;
+            complete = true;
+        }
+
+        boolean isComplete() {
+            return complete;
+        }
+
+        R result() throws FileOpException {
+            if (error instanceof RuntimeXodusFsException e) {
+                LOGGER.debug(() -> "error computing transaction: " + e.getMessage(), e);
+                throw e.asXodusFsException();
+            }
+            if (error instanceof RuntimeException e) {
+                throw e;
+            }
+            if (error instanceof Error e) {
+                throw e;
+            }
+            return result;
+        }
+    }
+
+    private static final class MutationFailedException extends RuntimeException {
+        private final transient PendingMutation<?> mutation;
+
+        MutationFailedException(final PendingMutation<?> mutation) {
+            super(null, null, false, false);
+            this.mutation = mutation;
+        }
+
+        PendingMutation<?> mutation() {
+            return mutation;
+        }
+    }
+
     public boolean removeKeyValue(
             final Transaction txn, final XodusStore xodusStore, final ByteIterable key, final ByteIterable value)
             throws FileOpException {
@@ -201,8 +601,17 @@ public class EnvironmentWrapper {
 
     public Stream<Map.Entry<ByteIterable, ByteIterable>> allEntriesForKey(
             final Transaction txn, final XodusStore store, final ByteIterable key) {
+        return allEntriesForKey(txn, store, key, null);
+    }
+
+    /**
+     * Stream the duplicate values of {@code key}, beginning at the first value that is equal to or greater than
+     * {@code startValue}.  A null {@code startValue} streams all values.
+     */
+    public Stream<Map.Entry<ByteIterable, ByteIterable>> allEntriesForKey(
+            final Transaction txn, final XodusStore store, final ByteIterable key, final ByteIterable startValue) {
         OPEN_ITERATORS.incrementAndGet();
-        final InnerIterator innerIterator = new InnerIterator(txn, store, key);
+        final InnerIterator innerIterator = new InnerIterator(txn, store, key, startValue);
         return StreamSupport.stream(Spliterators.spliteratorUnknownSize(innerIterator, 0), false)
                 .onClose(() -> {
                     OPEN_ITERATORS.decrementAndGet();
@@ -213,15 +622,21 @@ public class EnvironmentWrapper {
     private class InnerIterator implements Iterator<Map.Entry<ByteIterable, ByteIterable>>, AutoCloseable {
         private final Cursor cursor;
         private final ByteIterable selectedKey;
+        private final ByteIterable startValue;
 
         private boolean closed;
         private boolean firstSearch;
 
         private Map.Entry<ByteIterable, ByteIterable> nextValue = null;
 
-        InnerIterator(final Transaction transaction, final XodusStore store, final ByteIterable selectedKey) {
+        InnerIterator(
+                final Transaction transaction,
+                final XodusStore store,
+                final ByteIterable selectedKey,
+                final ByteIterable startValue) {
             this.cursor = getStore(store).openCursor(transaction);
             this.selectedKey = selectedKey;
+            this.startValue = startValue;
             doNext();
         }
 
@@ -238,8 +653,13 @@ public class EnvironmentWrapper {
                     }
                 } else {
                     if (!firstSearch) {
-                        cursor.getSearchKey(selectedKey);
                         firstSearch = true;
+                        if (startValue == null) {
+                            cursor.getSearchKey(selectedKey);
+                        } else if (cursor.getSearchBothRange(selectedKey, startValue) == null) {
+                            close();
+                            return;
+                        }
                     } else {
                         if (!cursor.getNextDup()) {
                             close();
@@ -294,7 +714,7 @@ public class EnvironmentWrapper {
 
     public Optional<StoredInternalEnvParams> readXodusFsParams() throws JcxfsException {
         try {
-            return doCompute(txn -> {
+            return doRead(txn -> {
                 final ByteIterable data = getStore(XodusStore.XODUS_META).get(txn, KEY_XODUS_FS_PARAMS);
                 if (data != null) {
                     final String jsonValue = StringBinding.entryToString(data);
@@ -313,13 +733,15 @@ public class EnvironmentWrapper {
         Objects.requireNonNull(xodusFsParams);
 
         try {
-            doExecute(txn -> {
-                final String jsonValue = JsonUtil.serialize(xodusFsParams);
-                final ByteIterable byteIterableValue = StringBinding.stringToEntry(jsonValue);
-                getStore(XodusStore.XODUS_META).put(txn, KEY_XODUS_FS_PARAMS, byteIterableValue);
-            });
+            doExecute(txn -> writeXodusFsParams(txn, xodusFsParams));
         } catch (final FileOpException e) {
             throw new JcxfsException("unable to read stored xodusFsParams: " + e.getMessage());
         }
     }
+
+    void writeXodusFsParams(final Transaction txn, final StoredInternalEnvParams xodusFsParams) {
+        final String jsonValue = JsonUtil.serialize(xodusFsParams);
+        final ByteIterable byteIterableValue = StringBinding.stringToEntry(jsonValue);
+        getStore(XodusStore.XODUS_META).put(txn, KEY_XODUS_FS_PARAMS, byteIterableValue);
+    }
 }
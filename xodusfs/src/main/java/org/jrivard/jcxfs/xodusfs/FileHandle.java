@@ -0,0 +1,200 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import org.jrivard.jcxfs.xodusfs.util.XodusFsLogger;
+
+/**
+ * An open file.  Reads made through the handle are watched for sequential access, once a run of sequential reads
+ * is seen the following pages are prefetched in the background with a single cursor scan.  The prefetch window
+ * doubles on each sequential read up to a maximum and resets on a random access.  Streaming reads do not populate
+ * the shared page cache, so a large sequential scan does not evict the working set of other files.
+ *
+ * <p>When a write-back buffer size is configured, writes made through the handle are buffered and committed on
+ * {@link #commit()} or {@link #flush()}, when the buffer fills, or by a background timer.</p>
+ */
+public final class FileHandle implements AutoCloseable {
+    private static final XodusFsLogger LOGGER = XodusFsLogger.getLogger(FileHandle.class);
+
+    private static final int MIN_WINDOW_BYTES = 128 * 1024;
+    private static final int MAX_WINDOW_BYTES = 4 * 1024 * 1024;
+
+    private final XodusFsImpl xodusFs;
+    private final long nodeId;
+    private final int pageSize;
+
+    /**
+     * Offset a sequential read would continue from.  Starts out unset, so the first read through a handle is never
+     * taken as sequential, even at offset zero, and a single read of a small file does not start a prefetch.
+     */
+    private long nextSequentialOffset = -1;
+
+    private int windowBytes = 0;
+    private ReadAheadChunk currentChunk;
+    private CompletableFuture<ReadAheadChunk> pendingChunk;
+
+    FileHandle(final XodusFsImpl xodusFs, final long nodeId, final int pageSize) {
+        this.xodusFs = xodusFs;
+        this.nodeId = nodeId;
+        this.pageSize = pageSize;
+    }
+
+    public long nodeId() {
+        return nodeId;
+    }
+
+    public synchronized int read(final ByteBuffer buf, final long count, final long offset) throws FileOpException {
+        if (xodusFs.hasWriteBack(nodeId)) {
+            nextSequentialOffset = offset + count;
+            resetReadAhead();
+            return xodusFs.read(nodeId, buf, count, offset);
+        }
+
+        if (offset != nextSequentialOffset) {
+            nextSequentialOffset = offset + count;
+            resetReadAhead();
+            return xodusFs.read(nodeId, buf, count, offset);
+        }
+
+        nextSequentialOffset = offset + count;
+        windowBytes = windowBytes == 0 ? MIN_WINDOW_BYTES : Math.min(windowBytes * 2, MAX_WINDOW_BYTES);
+
+        final long generation = xodusFs.dataGeneration(nodeId);
+        final ReadAheadChunk chunk = chunkFor(offset, count, generation);
+
+        final int bytesRead;
+        if (chunk != null) {
+            bytesRead = chunk.copyTo(buf, offset, count);
+            xodusFs.readAheadStats().increment(XodusFsImpl.ReadAheadStats.readAheadHits);
+        } else {
+            bytesRead = xodusFs.read(nodeId, buf, count, offset, false);
+            xodusFs.readAheadStats().increment(XodusFsImpl.ReadAheadStats.readAheadMisses);
+        }
+
+        scheduleReadAhead(offset + count);
+        return bytesRead;
+    }
+
+    public int write(final ByteBuffer buf, final long count, final long offset) throws FileOpException {
+        if (xodusFs.isWriteBackEnabled()) {
+            return xodusFs.bufferWrite(nodeId, buf, count, offset);
+        }
+        return xodusFs.writeFileData(nodeId, buf, count, offset);
+    }
+
+    /**
+     * Commit any buffered writes and the deferred modification time of the file.
+     */
+    public void commit() throws FileOpException {
+        xodusFs.commit(nodeId);
+    }
+
+    /**
+     * Commit any buffered writes to the file and force them to disk if the configured {@link Durability} honours
+     * sync requests.
+     */
+    public void flush() throws FileOpException {
+        xodusFs.sync(nodeId);
+    }
+
+    public void truncate(final long size) throws FileOpException {
+        xodusFs.truncate(nodeId, size);
+    }
+
+    public void fallocate(final int mode, final long offset, final long length) throws FileOpException {
+        xodusFs.fallocate(nodeId, mode, offset, length);
+    }
+
+    public long copyRange(final long offset, final FileHandle target, final long targetOffset, final long length)
+            throws FileOpException {
+        return xodusFs.copyFileRange(nodeId, offset, target.nodeId, targetOffset, length);
+    }
+
+    /**
+     * Find a prefetched chunk covering the requested range, promoting the pending chunk to current if the current
+     * chunk is exhausted.  Chunks read before the last change to the file data are discarded.
+     */
+    private ReadAheadChunk chunkFor(final long offset, final long count, final long generation) {
+        if (currentChunk != null && currentChunk.generation() != generation) {
+            currentChunk = null;
+        }
+
+        if ((currentChunk == null || !currentChunk.covers(offset, count)) && pendingChunk != null) {
+            currentChunk = awaitPendingChunk();
+            if (currentChunk != null && currentChunk.generation() != generation) {
+                currentChunk = null;
+            }
+        }
+
+        return currentChunk != null && currentChunk.covers(offset, count) ? currentChunk : null;
+    }
+
+    private ReadAheadChunk awaitPendingChunk() {
+        final CompletableFuture<ReadAheadChunk> future = pendingChunk;
+        pendingChunk = null;
+        try {
+            return future.join();
+        } catch (final Exception e) {
+            LOGGER.debug(() -> "read-ahead failed for node " + InodeId.prettyPrint(nodeId) + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Start fetching the next window once the reader has consumed half of the current chunk, so the next chunk is
+     * usually ready by the time the reader reaches it.
+     */
+    private void scheduleReadAhead(final long readEnd) {
+        if (pendingChunk != null) {
+            return;
+        }
+
+        final long fetchFrom;
+        if (currentChunk == null) {
+            fetchFrom = readEnd;
+        } else {
+            if (currentChunk.atEndOfFile()) {
+                return;
+            }
+            final long chunkLength = currentChunk.endOffset() - currentChunk.startOffset();
+            if (currentChunk.endOffset() - readEnd > chunkLength / 2) {
+                return;
+            }
+            fetchFrom = Math.max(readEnd, currentChunk.endOffset());
+        }
+
+        final int firstPage = Math.toIntExact(fetchFrom / pageSize);
+        final int pageCount = Math.max(1, windowBytes / pageSize);
+        pendingChunk = xodusFs.readAhead(nodeId, firstPage, pageCount);
+    }
+
+    private void resetReadAhead() {
+        windowBytes = 0;
+        currentChunk = null;
+        if (pendingChunk != null) {
+            pendingChunk.cancel(false);
+            pendingChunk = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        resetReadAhead();
+    }
+}
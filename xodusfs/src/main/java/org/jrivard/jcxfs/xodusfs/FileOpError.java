@@ -24,4 +24,6 @@ public enum FileOpError {
     DIR_NOT_EMPTY,
     IO_ERROR,
     FILE_EXISTS,
+    INVALID_ARGUMENT,
+    NOT_SUPPORTED,
 }
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import java.util.Objects;
+
+/**
+ * Attributes and length of a node as returned by {@link XodusFs#stat(String)}, read together in one transaction.
+ * The length is zero for anything but a file.
+ */
+public record FileStat(long nodeId, InodeEntry inodeEntry, long length) {
+    public FileStat {
+        Objects.requireNonNull(inodeEntry);
+    }
+}
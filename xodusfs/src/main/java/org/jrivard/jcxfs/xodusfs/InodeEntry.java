@@ -17,12 +17,15 @@
 package org.jrivard.jcxfs.xodusfs;
 
 import com.google.gson.annotations.SerializedName;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.EnumSet;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.IntPredicate;
+import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.bindings.StringBinding;
 import org.jrivard.jcxfs.xodusfs.util.JsonUtil;
@@ -35,10 +38,23 @@ public record InodeEntry(
         @SerializedName("mt") Instant mTime,
         @SerializedName("u") int uid,
         @SerializedName("g") int gid,
-        @SerializedName("p") String targetPath) {
+        @SerializedName("p") String targetPath,
+        @SerializedName("nc") boolean noCompress) {
 
     private static final Set<Type> ALL_TYPES = EnumSet.allOf(Type.class);
 
+    /**
+     * First byte of a binary encoded entry.  Legacy entries are json strings and always start with '{'.
+     */
+    private static final byte FORMAT_BINARY_V1 = 0x01;
+
+    private static final byte LEGACY_JSON_START = '{';
+    private static final byte FLAG_ATIME = 0x01;
+    private static final byte FLAG_TARGET_PATH = 0x02;
+    private static final byte FLAG_NO_COMPRESS = 0x04;
+    private static final int TIME_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int FIXED_BYTES = 2 + 3 * Integer.BYTES + 3 * TIME_BYTES;
+
     enum Type {
         DIR(FuseFileStat.S_ISDIR, FuseFileStat.S_IFDIR, FuseFileStat.S_IFDIR | 0755),
         FILE(FuseFileStat.S_ISREG, FuseFileStat.S_IFREG, FuseFileStat.S_IFREG | 0444),
@@ -103,31 +119,58 @@ public record InodeEntry(
 
     private static InodeEntry newEntry(final Type type, final int mode) {
         final int effectiveMode = type.mask() | mode;
-        return new InodeEntry(effectiveMode, Instant.now(), Instant.now(), Instant.now(), Instant.now(), 0, 0, null);
+        return new InodeEntry(
+                effectiveMode, Instant.now(), Instant.now(), Instant.now(), Instant.now(), 0, 0, null, false);
     }
 
     public InodeEntry withMtimeNow() {
-        return new InodeEntry(mode, aTime, cTime, bTime, Instant.now(), uid, gid, targetPath);
+        return new InodeEntry(mode, aTime, cTime, bTime, Instant.now(), uid, gid, targetPath, noCompress);
     }
 
     public InodeEntry withUidGid(final int uid, final int gid) {
-        return new InodeEntry(mode, aTime, cTime, bTime, mTime, uid, gid, targetPath);
+        return new InodeEntry(mode, aTime, cTime, bTime, mTime, uid, gid, targetPath, noCompress);
     }
 
     public InodeEntry withAtimeMtime(final Instant aTime, final Instant mTime) {
-        return new InodeEntry(mode, aTime, cTime, bTime, mTime, uid, gid, targetPath);
+        return new InodeEntry(mode, aTime, cTime, bTime, mTime, uid, gid, targetPath, noCompress);
     }
 
     public InodeEntry withMode(final int mode) {
-        return new InodeEntry(mode, aTime, cTime, bTime, mTime, uid, gid, targetPath);
+        return new InodeEntry(mode, aTime, cTime, bTime, mTime, uid, gid, targetPath, noCompress);
     }
 
     public InodeEntry withTargetPath(final String targetPath) {
-        return new InodeEntry(mode, aTime, cTime, bTime, mTime, uid, gid, targetPath);
+        return new InodeEntry(mode, aTime, cTime, bTime, mTime, uid, gid, targetPath, noCompress);
+    }
+
+    /**
+     * Exclude the file data from page compression, for contents that are already compressed or encrypted.
+     */
+    public InodeEntry withNoCompress(final boolean noCompress) {
+        return new InodeEntry(mode, aTime, cTime, bTime, mTime, uid, gid, targetPath, noCompress);
     }
 
+    /**
+     * Decode a stored entry, accepting both the binary format and the json format written by database versions
+     * before 3.
+     */
     public static InodeEntry fromByteIterable(final ByteIterable byteIterable) {
         Objects.requireNonNull(byteIterable);
+        if (byteIterable.getLength() < 1) {
+            throw new RuntimeException("error decoding stored directory entry: empty value");
+        }
+
+        final byte format = byteIterable.getBytesUnsafe()[0];
+        if (format == FORMAT_BINARY_V1) {
+            return fromBinary(byteIterable.getBytesUnsafe(), byteIterable.getLength());
+        }
+        if (format == LEGACY_JSON_START) {
+            return fromLegacyJson(byteIterable);
+        }
+        throw new RuntimeException("error decoding stored directory entry: unknown format '" + format + "'");
+    }
+
+    private static InodeEntry fromLegacyJson(final ByteIterable byteIterable) {
         final String json = StringBinding.entryToString(byteIterable);
         Objects.requireNonNull(json);
         try {
@@ -137,9 +180,65 @@ public record InodeEntry(
         }
     }
 
+    private static InodeEntry fromBinary(final byte[] bytes, final int length) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        buffer.get(); // format
+        final byte flags = buffer.get();
+        final int mode = buffer.getInt();
+        final int uid = buffer.getInt();
+        final int gid = buffer.getInt();
+        final Instant aTime = (flags & FLAG_ATIME) != 0 ? readTime(buffer) : null;
+        final Instant cTime = readTime(buffer);
+        final Instant bTime = readTime(buffer);
+        final Instant mTime = readTime(buffer);
+        final String targetPath = (flags & FLAG_TARGET_PATH) != 0
+                ? new String(bytes, buffer.position(), buffer.remaining(), StandardCharsets.UTF_8)
+                : null;
+        return new InodeEntry(mode, aTime, cTime, bTime, mTime, uid, gid, targetPath, (flags & FLAG_NO_COMPRESS) != 0);
+    }
+
+    /**
+     * Encode as: format byte, flags byte (which also holds the compression opt-out), mode, uid and gid as ints, then
+     * the optional access time followed by the change, birth and modify times, each as epoch seconds and a nanosecond
+     * int.  A symlink target follows as utf-8 up to the end of the value.
+     */
     public ByteIterable toByteIterable() {
-        final String json = JsonUtil.serialize(this);
-        return StringBinding.stringToEntry(json);
+        final byte[] targetBytes = targetPath == null ? new byte[0] : targetPath.getBytes(StandardCharsets.UTF_8);
+        final int length = FIXED_BYTES + (aTime == null ? 0 : TIME_BYTES) + targetBytes.length;
+        final byte flags = (byte) ((aTime == null ? 0 : FLAG_ATIME)
+                | (targetPath == null ? 0 : FLAG_TARGET_PATH)
+                | (noCompress ? FLAG_NO_COMPRESS : 0));
+
+        final ByteBuffer buffer = ByteBuffer.allocate(length)
+                .put(FORMAT_BINARY_V1)
+                .put(flags)
+                .putInt(mode)
+                .putInt(uid)
+                .putInt(gid);
+        if (aTime != null) {
+            writeTime(buffer, aTime);
+        }
+        writeTime(buffer, cTime);
+        writeTime(buffer, bTime);
+        writeTime(buffer, mTime);
+        buffer.put(targetBytes);
+        return new ArrayByteIterable(buffer.array(), length);
+    }
+
+    /**
+     * Encode in the json format used by database versions before 3, kept for testing the legacy reader.
+     */
+    ByteIterable toLegacyByteIterable() {
+        return StringBinding.stringToEntry(JsonUtil.serialize(this));
+    }
+
+    private static void writeTime(final ByteBuffer buffer, final Instant instant) {
+        buffer.putLong(instant.getEpochSecond()).putInt(instant.getNano());
+    }
+
+    private static Instant readTime(final ByteBuffer buffer) {
+        final long seconds = buffer.getLong();
+        return Instant.ofEpochSecond(seconds, buffer.getInt());
     }
 
     public Optional<Type> type() {
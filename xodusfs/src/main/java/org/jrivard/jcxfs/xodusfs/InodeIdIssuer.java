@@ -17,25 +17,35 @@
 package org.jrivard.jcxfs.xodusfs;
 
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.bindings.StringBinding;
+import jetbrains.exodus.env.Cursor;
 import jetbrains.exodus.env.Store;
 import jetbrains.exodus.env.Transaction;
 import org.jrivard.jcxfs.xodusfs.util.StatCounterBundle;
 
+/**
+ * Issues inode ids from an in-memory counter.  Ids are reserved in blocks: {@link #ID_COUNTER} holds the highest id
+ * that may have been issued, and is only written when the counter moves past the current block, in the same
+ * transaction as the create that crossed it.
+ *
+ * <p>On open the counter resumes after the larger of the stored reservation and the highest existing inode id, so
+ * ids issued from a block whose reservation was lost with an aborted transaction or a crash are never issued again.
+ * Because every issued id is then larger than any existing id, creates skip the existence probe until the counter
+ * wraps around.</p>
+ */
 class InodeIdIssuer {
-    private static final ByteIterable ID_COUNTER = StringBinding.stringToEntry("ID_COUNTER");
+    static final ByteIterable ID_COUNTER = StringBinding.stringToEntry("ID_COUNTER");
     private static final long ID_MIN = Integer.MAX_VALUE;
     private static final long ID_MAX = Long.MAX_VALUE - 10;
-
-    private final Lock CREATE_LOCK = new ReentrantLock();
+    private static final long RESERVE_BLOCK_SIZE = 1024;
 
     private final InodeStore inodeStore;
     private final Store inodeMetaStore;
 
     private final AtomicLong memoryCounter;
+    private final AtomicLong reservedThrough;
+    private volatile boolean wrapped = false;
     private final StatCounterBundle<InodeStore.InodeStoreDebugStats> stats;
 
     public InodeIdIssuer(
@@ -48,43 +58,67 @@ class InodeIdIssuer {
         this.stats = stats;
 
         try {
-            memoryCounter = environment.doCompute(txn -> {
+            final long lastIssued = environment.doRead(txn -> {
+                long highest = ID_MIN - 1;
+
                 final ByteIterable storedValue = inodeMetaStore.get(txn, ID_COUNTER);
                 if (storedValue != null) {
-                    final long storedLong = InodeId.byteIterableToInodeId(storedValue);
-                    return new AtomicLong(storedLong);
-                } else {
-                    return new AtomicLong(ID_MIN);
+                    highest = Math.max(highest, InodeId.byteIterableToInodeId(storedValue));
                 }
+
+                try (final Cursor cursor =
+                        environment.getStore(XodusStore.INODE).openCursor(txn)) {
+                    if (cursor.getLast()) {
+                        highest = Math.max(highest, InodeId.byteIterableToInodeId(cursor.getKey()));
+                    }
+                }
+
+                return highest;
             });
+            memoryCounter = new AtomicLong(lastIssued);
+            reservedThrough = new AtomicLong(lastIssued);
         } catch (final FileOpException e) {
             throw new JcxfsException("error initializing inode-id-issuer: " + e.getError(), e);
         }
     }
 
+    /**
+     * Issue a new id, must be called within the write transaction that creates the inode.
+     */
     public long nextId(final Transaction txn) {
-        CREATE_LOCK.lock();
-        long safetyCounter = 0;
-        try {
-            for (; safetyCounter < ID_MAX; safetyCounter++) {
-                final long nextLong = next();
-                if (!inodeStore.hasId(txn, nextLong)) {
-                    final ByteIterable nextAsByteIterable = InodeId.inodeIdToByteIterable(nextLong);
-                    inodeMetaStore.put(txn, ID_COUNTER, nextAsByteIterable);
-                    stats.increment(InodeStore.InodeStoreDebugStats.inodeIdCreateDupes);
-                    return nextLong;
-                }
+        long nextLong = next();
+        if (!wrapped) {
+            reserve(txn, nextLong);
+            return nextLong;
+        }
+
+        // after wrapping around, issued ids may collide with existing inodes
+        for (long safetyCounter = 0; safetyCounter < ID_MAX; safetyCounter++) {
+            if (!inodeStore.hasId(txn, nextLong)) {
+                return nextLong;
+            }
+            stats.increment(InodeStore.InodeStoreDebugStats.inodeIdCreateDupes);
+            nextLong = next();
+        }
+        throw new IllegalStateException("unable to create new inode after " + ID_MAX + " searches");
+    }
+
+    private void reserve(final Transaction txn, final long id) {
+        final long reservedEnd = reservedThrough.get();
+        if (id > reservedEnd) {
+            final long newReservedEnd = Math.min(id + RESERVE_BLOCK_SIZE - 1, ID_MAX);
+            if (reservedThrough.compareAndSet(reservedEnd, newReservedEnd)) {
+                inodeMetaStore.put(txn, ID_COUNTER, InodeId.inodeIdToByteIterable(newReservedEnd));
+                stats.increment(InodeStore.InodeStoreDebugStats.inodeIdBlockReservations);
             }
-        } finally {
-            CREATE_LOCK.unlock();
         }
-        throw new IllegalStateException("unable to create new inode after " + safetyCounter + " searches");
     }
 
     private long next() {
-        return memoryCounter.getAndUpdate(operand -> {
+        return memoryCounter.updateAndGet(operand -> {
             long local = operand + 1;
             if (local >= ID_MAX) {
+                wrapped = true;
                 local = ID_MIN;
             }
             return local;
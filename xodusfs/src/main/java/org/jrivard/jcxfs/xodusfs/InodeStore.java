@@ -16,7 +16,8 @@
 
 package org.jrivard.jcxfs.xodusfs;
 
-import com.github.benmanes.caffeine.cache.Cache;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import jetbrains.exodus.ByteIterable;
@@ -34,7 +35,7 @@ class InodeStore implements StoreBucket {
 
     private final StatCounterBundle<InodeStoreDebugStats> stats = new StatCounterBundle<>(InodeStoreDebugStats.class);
 
-    private final Cache<Long, Optional<InodeEntry>> inodeCache;
+    private final StoreCache<Long, Optional<InodeEntry>> inodeCache;
 
     public enum InodeStoreDebugStats {
         inodeRecordCreates,
@@ -42,6 +43,7 @@ class InodeStore implements StoreBucket {
         inodeRecordUpdates,
         inodeRecordReads,
         inodeIdCreateDupes,
+        inodeIdBlockReservations,
     }
 
     public InodeStore(final EnvironmentWrapper environmentWrapper) throws JcxfsException {
@@ -92,7 +94,7 @@ class InodeStore implements StoreBucket {
     }
 
     public Optional<InodeEntry> readEntry(final Transaction txn, final long fid) {
-        return inodeCache.get(fid, lambdaFid -> {
+        return inodeCache.get(txn, fid, lambdaFid -> {
             final ByteIterable byteIterable = inodeStore.get(txn, InodeId.inodeIdToByteIterable(lambdaFid));
             stats.increment(InodeStoreDebugStats.inodeRecordReads);
             return Optional.ofNullable(byteIterable).map(InodeEntry::fromByteIterable);
@@ -101,7 +103,7 @@ class InodeStore implements StoreBucket {
 
     public void updateEntry(final Transaction txn, final long fid, final InodeEntry inodeEntry) {
         final ByteIterable inodeByteIterable = InodeId.inodeIdToByteIterable(fid);
-        inodeCache.invalidate(fid);
+        inodeCache.invalidate(txn, fid);
         inodeStore.put(txn, inodeByteIterable, inodeEntry.toByteIterable());
         stats.increment(InodeStoreDebugStats.inodeRecordUpdates);
     }
@@ -110,11 +112,29 @@ class InodeStore implements StoreBucket {
         readEntry(txn, fid)
                 .orElseThrow(() -> RuntimeXodusFsException.of(FileOpError.NO_SUCH_FILE, "inode does not exist"));
 
-        inodeCache.invalidate(fid);
+        inodeCache.invalidate(txn, fid);
         inodeStore.delete(txn, InodeId.inodeIdToByteIterable(fid));
         stats.increment(InodeStoreDebugStats.inodeRecordDeletes);
     }
 
+    /**
+     * Re-encode every inode entry in the current format.
+     */
+    static void rewriteEntries(final EnvironmentWrapper environmentWrapper, final Transaction txn) {
+        final Store store = environmentWrapper.getStore(XodusStore.INODE);
+        final List<Map.Entry<Long, InodeEntry>> entries = new ArrayList<>();
+        environmentWrapper.forEach(
+                txn,
+                XodusStore.INODE,
+                entry -> entries.add(Map.entry(
+                        InodeId.byteIterableToInodeId(entry.getKey()), InodeEntry.fromByteIterable(entry.getValue()))));
+        entries.forEach(entry -> store.put(
+                txn,
+                InodeId.inodeIdToByteIterable(entry.getKey()),
+                entry.getValue().toByteIterable()));
+        LOGGER.debug(() -> "rewrote " + entries.size() + " inode entries");
+    }
+
     public boolean hasId(final Transaction txn, final long nextLong) {
         return readEntry(txn, nextLong).isPresent();
     }
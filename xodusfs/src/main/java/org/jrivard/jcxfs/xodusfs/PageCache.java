@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.text.NumberFormat;
+import java.util.Map;
+import jetbrains.exodus.env.Transaction;
+
+/**
+ * Bounded cache of decrypted data page contents, weighed by page length and evicted by the caffeine W-TinyLFU
+ * policy.  Pages are only added by the read path, data store writes invalidate each page they modify or delete.
+ * Like the store caches it goes through a {@link StoreCache}, so changes made by a write transaction only reach the
+ * cache once it commits.
+ */
+class PageCache {
+    /**
+     * Approximate heap cost of a cache entry beyond the page bytes, so that sparse short pages are not
+     * under-weighed.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final StoreCache<DataKey, byte[]> cache;
+
+    private PageCache(final EnvironmentWrapper environmentWrapper, final long maxBytes) {
+        this.cache = maxBytes > 0
+                ? new StoreCache<>(
+                        environmentWrapper,
+                        Caffeine.newBuilder()
+                                .maximumWeight(maxBytes)
+                                .weigher((DataKey key, byte[] value) -> value.length + ENTRY_OVERHEAD)
+                                .recordStats()
+                                .build())
+                : null;
+    }
+
+    static PageCache forEnvironment(final EnvironmentWrapper environmentWrapper) {
+        return new PageCache(
+                environmentWrapper, environmentWrapper.runtimeParameters().pageCacheBytes());
+    }
+
+    /**
+     * Returned arrays are shared with the cache and must not be modified.
+     */
+    byte[] get(final Transaction txn, final DataKey dataKey) {
+        return cache == null ? null : cache.getIfPresent(txn, dataKey);
+    }
+
+    void put(final Transaction txn, final DataKey dataKey, final byte[] data) {
+        if (cache != null) {
+            cache.put(txn, dataKey, data);
+        }
+    }
+
+    void invalidate(final Transaction txn, final DataKey dataKey) {
+        if (cache != null) {
+            cache.invalidate(txn, dataKey);
+        }
+    }
+
+    Map<String, String> runtimeStats() {
+        if (cache == null) {
+            return Map.of();
+        }
+
+        final Cache<DataKey, byte[]> caffeineCache = cache.cache();
+        final NumberFormat numberFormat = NumberFormat.getNumberInstance();
+        final CacheStats cacheStats = caffeineCache.stats();
+        final long weightedSize = caffeineCache
+                .policy()
+                .eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+        return Map.of(
+                "pageCacheHits", numberFormat.format(cacheStats.hitCount()),
+                "pageCacheMisses", numberFormat.format(cacheStats.missCount()),
+                "pageCacheEvictions", numberFormat.format(cacheStats.evictionCount()),
+                "pageCacheBytes", numberFormat.format(weightedSize));
+    }
+}
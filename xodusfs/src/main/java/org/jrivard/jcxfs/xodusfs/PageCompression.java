@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import java.util.zip.Deflater;
+
+/**
+ * How data pages are compressed when written.  Pages that do not shrink are stored uncompressed regardless of mode,
+ * and pages of every mode remain readable after the mode is changed.
+ */
+public enum PageCompression {
+    /**
+     * Store pages uncompressed.  The default, since compression runs inside the write transaction.
+     */
+    off(Deflater.NO_COMPRESSION),
+
+    /**
+     * Deflate at the fastest level.
+     */
+    fast(Deflater.BEST_SPEED),
+
+    /**
+     * Deflate at the default level, smaller pages for several times the cpu cost of {@link #fast}.
+     */
+    small(Deflater.DEFAULT_COMPRESSION),
+    ;
+
+    private final int deflateLevel;
+
+    PageCompression(final int deflateLevel) {
+        this.deflateLevel = deflateLevel;
+    }
+
+    int deflateLevel() {
+        return deflateLevel;
+    }
+}
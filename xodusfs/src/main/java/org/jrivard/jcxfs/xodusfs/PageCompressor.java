@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import java.nio.ByteBuffer;
+import java.text.NumberFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.ByteIterable;
+import org.jrivard.jcxfs.xodusfs.util.StatCounterBundle;
+
+/**
+ * Compresses data page contents into encoded data table values: the deflate output, the uncompressed length as an
+ * int, then the {@link #TYPE_DEFLATE} trailer.  A page is only stored compressed when it shrinks by at least an
+ * eighth, otherwise the cpu cost of inflating it on every read outweighs the saving.
+ */
+final class PageCompressor {
+    static final byte TYPE_DEFLATE = 2;
+
+    /**
+     * Shorter pages are not worth the encoding overhead and the call into zlib.
+     */
+    private static final int MIN_COMPRESS_BYTES = 64;
+
+    private static final int OVERHEAD = Integer.BYTES + DataPages.TRAILER_LENGTH;
+
+    enum PageCompressionStats {
+        pagesCompressed,
+        pagesCompressBypassed,
+        pagesDecompressed,
+        compressBytesIn,
+        compressBytesOut,
+        compressNanos,
+        decompressNanos,
+    }
+
+    private final PageCompression pageCompression;
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+    private final StatCounterBundle<PageCompressionStats> stats = new StatCounterBundle<>(PageCompressionStats.class);
+
+    PageCompressor(final PageCompression pageCompression) {
+        this.pageCompression = pageCompression;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(pageCompression.deflateLevel()));
+    }
+
+    /**
+     * @return the encoded value, or null if compression is off or the contents should be stored uncompressed.
+     */
+    ByteIterable compress(final ByteIterable contents) {
+        final int length = contents.getLength();
+        if (pageCompression == PageCompression.off || length < MIN_COMPRESS_BYTES) {
+            return null;
+        }
+
+        final long startNanos = System.nanoTime();
+        final Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(DataPages.bytesOf(contents), 0, length);
+        deflater.finish();
+
+        // the output is capped at the size worth storing, a page that does not fit is left uncompressed
+        final int maxPayloadLength = length - length / 8 - OVERHEAD;
+        final byte[] output = new byte[maxPayloadLength + OVERHEAD];
+        int payloadLength = 0;
+        while (!deflater.finished() && payloadLength < maxPayloadLength) {
+            payloadLength += deflater.deflate(output, payloadLength, maxPayloadLength - payloadLength);
+        }
+        final boolean compressed = deflater.finished();
+        stats.increment(PageCompressionStats.compressNanos, System.nanoTime() - startNanos);
+
+        if (!compressed) {
+            stats.increment(PageCompressionStats.pagesCompressBypassed);
+            return null;
+        }
+
+        ByteBuffer.wrap(output, payloadLength, OVERHEAD)
+                .putInt(length)
+                .put(TYPE_DEFLATE)
+                .put(DataPages.TRAILER_MARK);
+        stats.increment(PageCompressionStats.pagesCompressed);
+        stats.increment(PageCompressionStats.compressBytesIn, length);
+        stats.increment(PageCompressionStats.compressBytesOut, payloadLength + OVERHEAD);
+        return new ArrayByteIterable(output, payloadLength + OVERHEAD);
+    }
+
+    ByteIterable decompress(final ByteIterable value) {
+        final long startNanos = System.nanoTime();
+        final byte[] bytes = DataPages.bytesOf(value);
+        final int payloadLength = value.getLength() - OVERHEAD;
+        final int length = ByteBuffer.wrap(bytes, payloadLength, Integer.BYTES).getInt();
+        final byte[] output = new byte[length];
+
+        final Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(bytes, 0, payloadLength);
+        try {
+            int inflatedLength = 0;
+            while (inflatedLength < length && !inflater.finished()) {
+                final int inflated = inflater.inflate(output, inflatedLength, length - inflatedLength);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflatedLength += inflated;
+            }
+            if (inflatedLength != length) {
+                throw new IllegalStateException("compressed data page is truncated");
+            }
+        } catch (final DataFormatException e) {
+            throw new IllegalStateException("compressed data page is corrupt: " + e.getMessage(), e);
+        }
+
+        stats.increment(PageCompressionStats.pagesDecompressed);
+        stats.increment(PageCompressionStats.decompressNanos, System.nanoTime() - startNanos);
+        return new ArrayByteIterable(output);
+    }
+
+    Map<String, String> runtimeStats() {
+        final Map<String, String> map = new HashMap<>(stats.debugStats());
+        final long bytesOut = stats.get(PageCompressionStats.compressBytesOut);
+        if (bytesOut > 0) {
+            final NumberFormat numberFormat = NumberFormat.getNumberInstance();
+            numberFormat.setMaximumFractionDigits(2);
+            map.put(
+                    "compressRatio",
+                    numberFormat.format((double) stats.get(PageCompressionStats.compressBytesIn) / bytesOut));
+        }
+        return Map.copyOf(map);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.ByteIterable;
+
+/**
+ * Key of the {@link XodusStore#PATH_NAME} index, the parent id as a fixed width long followed by the utf-8 bytes
+ * of the child name.  The fixed width id keeps all children of a parent adjacent in the index.
+ */
+record PathNameKey(long parentId, String name) implements StoreKey {
+
+    public PathNameKey {
+        if (parentId <= 0) {
+            throw new IllegalArgumentException("parentId value must be a positive long");
+        }
+        if (Objects.requireNonNull(name).isEmpty()) {
+            throw new IllegalArgumentException("name must have at least one character");
+        }
+    }
+
+    public static PathNameKey fromByteIterable(final ByteIterable byteIterable) {
+        final byte[] bytes = byteIterable.getBytesUnsafe();
+        final int length = byteIterable.getLength();
+        final long parentId = ByteBuffer.wrap(bytes, 0, Long.BYTES).getLong();
+        final String name = new String(bytes, Long.BYTES, length - Long.BYTES, StandardCharsets.UTF_8);
+        return new PathNameKey(parentId, name);
+    }
+
+    @Override
+    public ByteIterable toByteIterable() {
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        final byte[] bytes = ByteBuffer.allocate(Long.BYTES + nameBytes.length)
+                .putLong(parentId)
+                .put(nameBytes)
+                .array();
+        return new ArrayByteIterable(bytes, bytes.length);
+    }
+}
@@ -16,15 +16,28 @@
 
 package org.jrivard.jcxfs.xodusfs;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HexFormat;
 import java.util.Objects;
+import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.bindings.StringBinding;
 
+/**
+ * A child entry of a directory, stored as a duplicate value under the parent id in {@link XodusStore#PATH}.
+ *
+ * <p>Serialized as a format byte, the id as a length byte followed by the minimal big-endian bytes of the id, and
+ * the raw utf-8 bytes of the name.  A shorter id is always a smaller id, so the serialized records sort by id.
+ * Records written before database version 4 are strings of the form {@code 1!<hex id>!<name>} and are still
+ * readable.</p>
+ */
 record PathRecord(long id, String name) {
+    private static final byte FORMAT_BINARY_V2 = 0x02;
+
     private static final HexFormat HEX_FORMAT = HexFormat.of();
-    private static final String SEPARATOR = "!";
-    private static final String VERSION = "1";
+    private static final String LEGACY_SEPARATOR = "!";
+    private static final String LEGACY_VERSION = "1";
+    private static final byte LEGACY_FORMAT_START = '1';
 
     public PathRecord {
         if (id < 0) {
@@ -37,18 +50,45 @@ record PathRecord(long id, String name) {
     }
 
     public static PathRecord fromByteIterable(final ByteIterable byteIterable) {
-        final String stringInput = StringBinding.entryToString(byteIterable);
+        final byte[] bytes = byteIterable.getBytesUnsafe();
+        final int length = byteIterable.getLength();
+        if (length < 3) {
+            throw new IllegalArgumentException("deserialized record missing components");
+        }
+
+        if (bytes[0] == FORMAT_BINARY_V2) {
+            final int idLength = bytes[1];
+            if (idLength < 1 || idLength > Long.BYTES || length <= 2 + idLength) {
+                throw new IllegalArgumentException("deserialized record missing components");
+            }
+            long id = 0;
+            for (int i = 0; i < idLength; i++) {
+                id = (id << 8) | (bytes[2 + i] & 0xFF);
+            }
+            final int nameOffset = 2 + idLength;
+            final String name = new String(bytes, nameOffset, length - nameOffset, StandardCharsets.UTF_8);
+            return new PathRecord(id, name);
+        }
+
+        if (bytes[0] == LEGACY_FORMAT_START) {
+            return fromLegacyString(StringBinding.entryToString(byteIterable));
+        }
+
+        throw new IllegalArgumentException("deserialized record version not recognized");
+    }
+
+    private static PathRecord fromLegacyString(final String stringInput) {
         Objects.requireNonNull(stringInput);
 
-        final int FIRST_INDEX = stringInput.indexOf(SEPARATOR);
-        final int SECOND_INDEX = stringInput.indexOf(SEPARATOR, FIRST_INDEX + 1);
+        final int FIRST_INDEX = stringInput.indexOf(LEGACY_SEPARATOR);
+        final int SECOND_INDEX = stringInput.indexOf(LEGACY_SEPARATOR, FIRST_INDEX + 1);
         if (FIRST_INDEX <= 0 || SECOND_INDEX <= 0) {
             throw new IllegalArgumentException("deserialized record missing components");
         }
 
         {
             final String versionSegment = stringInput.substring(0, FIRST_INDEX);
-            if (!VERSION.equals(versionSegment)) {
+            if (!LEGACY_VERSION.equals(versionSegment)) {
                 throw new IllegalArgumentException("deserialized record version not recognized");
             }
         }
@@ -59,9 +99,48 @@ record PathRecord(long id, String name) {
         return new PathRecord(id, name);
     }
 
+    /**
+     * Records for a parent are stored as sorted duplicates, and the serialized form begins with the id, so the
+     * duplicates are ordered by child id.  The returned value sorts after every record with an id of {@code id} or
+     * less and before every record with a larger id.
+     */
+    static ByteIterable searchValueAfterId(final long id) {
+        final byte[] bytes = new byte[2 + idLength(id + 1)];
+        final int offset = writeId(bytes, id + 1);
+        return new ArrayByteIterable(bytes, offset);
+    }
+
     public ByteIterable toByteIterable() {
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        final byte[] bytes = new byte[2 + idLength(id) + nameBytes.length];
+        final int offset = writeId(bytes, id);
+        System.arraycopy(nameBytes, 0, bytes, offset, nameBytes.length);
+        return new ArrayByteIterable(bytes, bytes.length);
+    }
+
+    /**
+     * Serialize in the string format used by database versions before 4, kept for testing the legacy reader.
+     */
+    ByteIterable toLegacyByteIterable() {
         final String idAsHex = HEX_FORMAT.toHexDigits(id);
-        final String stringOutput = VERSION + SEPARATOR + idAsHex + SEPARATOR + name;
+        final String stringOutput = LEGACY_VERSION + LEGACY_SEPARATOR + idAsHex + LEGACY_SEPARATOR + name;
         return StringBinding.stringToEntry(stringOutput);
     }
+
+    private static int idLength(final long id) {
+        return Math.max(1, Long.BYTES - Long.numberOfLeadingZeros(id) / Byte.SIZE);
+    }
+
+    /**
+     * Write the format byte and the id, returning the offset following the id.
+     */
+    private static int writeId(final byte[] bytes, final long id) {
+        final int idLength = idLength(id);
+        bytes[0] = FORMAT_BINARY_V2;
+        bytes[1] = (byte) idLength;
+        for (int i = 0; i < idLength; i++) {
+            bytes[2 + i] = (byte) (id >>> (Byte.SIZE * (idLength - 1 - i)));
+        }
+        return 2 + idLength;
+    }
 }
@@ -16,11 +16,11 @@
 
 package org.jrivard.jcxfs.xodusfs;
 
-import com.github.benmanes.caffeine.cache.Cache;
+import java.util.ArrayList;
 import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.env.Store;
@@ -32,8 +32,15 @@ class PathStore implements StoreBucket {
     private static final XodusFsLogger LOGGER = XodusFsLogger.getLogger(PathStore.class);
 
     private final Store pathStore;
+    private final Store pathNameStore;
     private final EnvironmentWrapper environmentWrapper;
-    private final Cache<String, Long> pathCache;
+    private final StoreCache<PathNameKey, Long> dentryCache;
+
+    /**
+     * Segments known not to exist.  A name only comes into existence through {@link #createEntry}, which
+     * invalidates the exact key, so entries never need to be expired wholesale.
+     */
+    private final StoreCache<PathNameKey, Boolean> negativeCache;
 
     private final StatCounterBundle<PathStoreDebugStats> stats = new StatCounterBundle<>(PathStoreDebugStats.class);
 
@@ -42,12 +49,15 @@ class PathStore implements StoreBucket {
         pathRecordDeletes,
         pathRecordRenames,
         pathRecordReads,
+        negativeCacheHits,
     }
 
     public PathStore(final EnvironmentWrapper environmentWrapper) {
         this.environmentWrapper = environmentWrapper;
         pathStore = environmentWrapper.getStore(XodusStore.PATH);
-        pathCache = StoreBucket.makeCache(environmentWrapper);
+        pathNameStore = environmentWrapper.getStore(XodusStore.PATH_NAME);
+        dentryCache = StoreBucket.makeCache(environmentWrapper);
+        negativeCache = StoreBucket.makeCache(environmentWrapper);
     }
 
     private void validatePathKeyForWrite(final PathKey pathKey) {
@@ -57,21 +67,6 @@ class PathStore implements StoreBucket {
     }
 
     public long readEntry(final Transaction txn, final PathKey path) {
-        final Long cachedValue = pathCache.getIfPresent(path.path());
-        if (cachedValue != null) {
-            return cachedValue;
-        }
-        final long readValue = readEntryImpl(txn, path);
-        if (readValue > 0) {
-            pathCache.put(path.path(), readValue);
-            LOGGER.trace(() ->
-                    "created db-cache entry for path '" + path.path() + "', id=" + InodeId.prettyPrint(readValue));
-        }
-        stats.increment(PathStoreDebugStats.pathRecordReads);
-        return readValue;
-    }
-
-    private long readEntryImpl(final Transaction txn, final PathKey path) {
         if (path.isRoot()) {
             return InodeId.ROOT_INODE;
         }
@@ -79,22 +74,69 @@ class PathStore implements StoreBucket {
         // first parent is always root.
         long segmentId = InodeId.ROOT_INODE;
 
-        final List<String> segments = path.segments();
+        for (final String segment : path.segments()) {
+            segmentId = readChildEntry(txn, segmentId, segment);
+            if (segmentId <= 0) {
+                return -1;
+            }
+        }
 
-        for (final String segment : segments) {
-            try (final Stream<PathRecord> pathRecordStream = readRecordsForId(txn, segmentId)) {
-                final Optional<PathRecord> segmentRecord = pathRecordStream
-                        .filter(record -> record.name().equals(segment))
-                        .findFirst();
-                if (segmentRecord.isEmpty()) {
-                    return -1;
-                }
+        return segmentId;
+    }
+
+    /**
+     * Check the path against the caches only, without a transaction.  Returns true when a segment of the path is
+     * cached as missing, false when the path exists or is not fully cached.
+     */
+    public boolean isCachedMissing(final PathKey path) {
+        if (path.isRoot()) {
+            return false;
+        }
 
-                segmentId = segmentRecord.get().id();
+        long segmentId = InodeId.ROOT_INODE;
+        for (final String segment : path.segments()) {
+            final PathNameKey pathNameKey = new PathNameKey(segmentId, segment);
+            final Long cachedValue = dentryCache.getIfPresent(pathNameKey);
+            if (cachedValue == null) {
+                if (negativeCache.getIfPresent(pathNameKey) != null) {
+                    stats.increment(PathStoreDebugStats.negativeCacheHits);
+                    return true;
+                }
+                return false;
             }
+            segmentId = cachedValue;
         }
+        return false;
+    }
 
-        return segmentId;
+    /**
+     * Resolve a single path segment.  Entries are cached by parent id and name rather than by full path, so a
+     * rename only invalidates the moved entry itself, the entries beneath it are keyed by the unchanged id of the
+     * moved directory.  Lookups made by a write transaction only reach the caches once it commits.
+     */
+    private long readChildEntry(final Transaction txn, final long parentId, final String name) {
+        final PathNameKey pathNameKey = new PathNameKey(parentId, name);
+        final Long cachedValue = dentryCache.getIfPresent(txn, pathNameKey);
+        if (cachedValue != null) {
+            return cachedValue;
+        }
+        if (negativeCache.getIfPresent(txn, pathNameKey) != null) {
+            stats.increment(PathStoreDebugStats.negativeCacheHits);
+            return -1;
+        }
+
+        stats.increment(PathStoreDebugStats.pathRecordReads);
+        final ByteIterable childId = pathNameStore.get(txn, pathNameKey.toByteIterable());
+        if (childId == null) {
+            negativeCache.put(txn, pathNameKey, Boolean.TRUE);
+            return -1;
+        }
+
+        final long readValue = InodeId.byteIterableToInodeId(childId);
+        dentryCache.put(txn, pathNameKey, readValue);
+        LOGGER.trace(() -> "created db-cache entry for parent " + InodeId.prettyPrint(parentId) + " name '" + name
+                + "', id=" + InodeId.prettyPrint(readValue));
+        return readValue;
     }
 
     @Override
@@ -114,7 +156,10 @@ class PathStore implements StoreBucket {
         }
 
         final PathRecord pathRecord = new PathRecord(inodeId, path.suffix());
+        final PathNameKey pathNameKey = new PathNameKey(parentId, path.suffix());
+        negativeCache.invalidate(txn, pathNameKey);
         pathStore.put(txn, InodeId.inodeIdToByteIterable(parentId), pathRecord.toByteIterable());
+        pathNameStore.put(txn, pathNameKey.toByteIterable(), InodeId.inodeIdToByteIterable(inodeId));
         stats.increment(PathStoreDebugStats.pathRecordCreates);
     }
 
@@ -140,7 +185,8 @@ class PathStore implements StoreBucket {
         final long parentId = readEntry(txn, path.parent());
         final ByteIterable parentKey = InodeId.inodeIdToByteIterable(parentId);
         final PathRecord pathRecord = new PathRecord(pathId, path.suffix());
-        pathCache.invalidate(path.path());
+        final PathNameKey pathNameKey = new PathNameKey(parentId, path.suffix());
+        dentryCache.invalidate(txn, pathNameKey);
         try {
             final boolean removed =
                     environmentWrapper.removeKeyValue(txn, XodusStore.PATH, parentKey, pathRecord.toByteIterable());
@@ -148,6 +194,7 @@ class PathStore implements StoreBucket {
                 throw RuntimeXodusFsException.of(
                         FileOpError.IO_ERROR, "error removing entry, unable to detach from parent entry");
             }
+            pathNameStore.delete(txn, pathNameKey.toByteIterable());
         } catch (final FileOpException e) {
             throw RuntimeXodusFsException.of(e.getError(), e.getMessage());
         }
@@ -155,16 +202,29 @@ class PathStore implements StoreBucket {
     }
 
     public Stream<String> readSubPaths(final Transaction txn, final PathKey path) {
+        return readSubPathRecords(txn, path).map(PathRecord::name);
+    }
+
+    public Stream<PathRecord> readSubPathRecords(final Transaction txn, final PathKey path) {
+        return readSubPathRecords(txn, path, 0);
+    }
+
+    /**
+     * Read the child records of {@code path} that have an id greater than {@code afterId}, in id order.  The
+     * child id is stable for the life of the entry, so it serves as a resumable directory position.
+     */
+    public Stream<PathRecord> readSubPathRecords(final Transaction txn, final PathKey path, final long afterId) {
         final long nodeId = readEntry(txn, path);
         if (nodeId <= 0) {
             throw RuntimeXodusFsException.of(FileOpError.NO_SUCH_DIR, "path does not exist");
         }
-        return readRecordsForId(txn, nodeId).map(PathRecord::name);
+        return readRecordsForId(txn, nodeId, afterId);
     }
 
-    private Stream<PathRecord> readRecordsForId(final Transaction txn, final long id) {
+    private Stream<PathRecord> readRecordsForId(final Transaction txn, final long id, final long afterId) {
+        final ByteIterable startValue = afterId > 0 ? PathRecord.searchValueAfterId(afterId) : null;
         return environmentWrapper
-                .allEntriesForKey(txn, XodusStore.PATH, InodeId.inodeIdToByteIterable(id))
+                .allEntriesForKey(txn, XodusStore.PATH, InodeId.inodeIdToByteIterable(id), startValue)
                 .map(entry -> PathRecord.fromByteIterable(entry.getValue()));
     }
 
@@ -186,20 +246,50 @@ class PathStore implements StoreBucket {
             throw RuntimeXodusFsException.of(FileOpError.NO_SUCH_DIR, "parent of new path does not exist");
         }
 
-        final boolean invalidatesCache;
-        try (final Stream<String> subPathStream = readSubPaths(txn, oldPath)) {
-            invalidatesCache = subPathStream.findAny().isPresent();
-        }
-
         removeEntryImpl(txn, oldPath, false);
         createEntry(txn, newPath, oldPathId);
         stats.increment(PathStoreDebugStats.pathRecordRenames);
+    }
 
-        if (invalidatesCache) {
-            final long cacheCount = pathCache.estimatedSize();
-            pathCache.invalidateAll();
-            LOGGER.debug(() -> "purged " + cacheCount + " records from db-cache");
-        }
+    /**
+     * Populate the {@link XodusStore#PATH_NAME} index from the existing {@link XodusStore#PATH} records, used when
+     * upgrading a database created before the index existed.
+     */
+    static void buildNameIndex(final EnvironmentWrapper environmentWrapper, final Transaction txn) {
+        final Store nameStore = environmentWrapper.getStore(XodusStore.PATH_NAME);
+        final AtomicLong count = new AtomicLong();
+        environmentWrapper.forEach(txn, XodusStore.PATH, entry -> {
+            final long parentId = InodeId.byteIterableToInodeId(entry.getKey());
+            final PathRecord pathRecord = PathRecord.fromByteIterable(entry.getValue());
+            nameStore.put(
+                    txn,
+                    new PathNameKey(parentId, pathRecord.name()).toByteIterable(),
+                    InodeId.inodeIdToByteIterable(pathRecord.id()));
+            count.incrementAndGet();
+        });
+        LOGGER.debug(() -> "indexed " + count.get() + " path records by name");
+    }
+
+    /**
+     * Re-encode every {@link XodusStore#PATH} record in the current format.
+     */
+    static void rewriteRecords(final EnvironmentWrapper environmentWrapper, final Transaction txn) {
+        final Store store = environmentWrapper.getStore(XodusStore.PATH);
+        final List<Map.Entry<Long, PathRecord>> records = new ArrayList<>();
+        environmentWrapper.forEach(
+                txn,
+                XodusStore.PATH,
+                entry -> records.add(Map.entry(
+                        InodeId.byteIterableToInodeId(entry.getKey()), PathRecord.fromByteIterable(entry.getValue()))));
+        records.stream()
+                .map(Map.Entry::getKey)
+                .distinct()
+                .forEach(parentId -> store.delete(txn, InodeId.inodeIdToByteIterable(parentId)));
+        records.forEach(record -> store.put(
+                txn,
+                InodeId.inodeIdToByteIterable(record.getKey()),
+                record.getValue().toByteIterable()));
+        LOGGER.debug(() -> "rewrote " + records.size() + " path records");
     }
 
     @Override
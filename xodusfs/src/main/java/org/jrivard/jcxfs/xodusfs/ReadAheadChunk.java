@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import java.nio.ByteBuffer;
+import org.jrivard.jcxfs.xodusfs.util.JavaUtil;
+
+/**
+ * A run of prefetched pages of a file, valid as long as the data generation of the file is unchanged.
+ *
+ * @param generation data generation of the file at the time the pages were read.
+ * @param fileLength file length at the time the pages were read.
+ * @param firstPage page number of the first element of {@code pages}.
+ * @param pages page contents, null elements are pages that are not stored.
+ */
+record ReadAheadChunk(long generation, long fileLength, int pageSize, int firstPage, byte[][] pages) {
+
+    long startOffset() {
+        return (long) firstPage * pageSize;
+    }
+
+    long endOffset() {
+        return Math.min(startOffset() + (long) pages.length * pageSize, fileLength);
+    }
+
+    boolean atEndOfFile() {
+        return endOffset() >= fileLength;
+    }
+
+    boolean covers(final long offset, final long count) {
+        return offset >= startOffset() && Math.min(offset + count, fileLength) <= endOffset();
+    }
+
+    int copyTo(final ByteBuffer buf, final long offset, final long count) {
+        final int length = Math.toIntExact(Math.max(0, Math.min(offset + count, fileLength) - offset));
+        long position = offset;
+        int remaining = length;
+        while (remaining > 0) {
+            final int pageIndex = Math.toIntExact((position - startOffset()) / pageSize);
+            final int pageStart = Math.toIntExact(position % pageSize);
+            final int copyLength = Math.min(pageSize - pageStart, remaining);
+            final byte[] page = pages[pageIndex];
+            if (page == null) {
+                JavaUtil.putZeros(buf, copyLength);
+            } else {
+                buf.put(page, pageStart, copyLength);
+            }
+            position += copyLength;
+            remaining -= copyLength;
+        }
+        return length;
+    }
+}
@@ -19,13 +19,149 @@ package org.jrivard.jcxfs.xodusfs;
 import java.nio.file.Path;
 import java.util.Objects;
 
-public record RuntimeParameters(Path path, String password, int gcPercentage, boolean readonly) {
+public record RuntimeParameters(
+        Path path,
+        String password,
+        int gcPercentage,
+        boolean readonly,
+        long pageCacheBytes,
+        int writeBackBytes,
+        Durability durability,
+        int inlineDataBytes,
+        boolean dedupPages,
+        PageCompression pageCompression) {
+    public static final long DEFAULT_PAGE_CACHE_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_INLINE_DATA_BYTES = 512;
+
     public RuntimeParameters {
         Objects.requireNonNull(path);
         Objects.requireNonNull(password);
+        Objects.requireNonNull(durability);
+        Objects.requireNonNull(pageCompression);
+        if (pageCacheBytes < 0) {
+            throw new IllegalArgumentException("pageCacheBytes can not be negative");
+        }
+        if (writeBackBytes < 0) {
+            throw new IllegalArgumentException("writeBackBytes can not be negative");
+        }
+        if (inlineDataBytes < 0) {
+            throw new IllegalArgumentException("inlineDataBytes can not be negative");
+        }
     }
 
     public static RuntimeParameters basic(final Path path, final String password) {
-        return new RuntimeParameters(path, password, 80, false);
+        return new RuntimeParameters(
+                path,
+                password,
+                80,
+                false,
+                DEFAULT_PAGE_CACHE_BYTES,
+                0,
+                Durability.async,
+                DEFAULT_INLINE_DATA_BYTES,
+                false,
+                PageCompression.off);
+    }
+
+    public RuntimeParameters withReadonly(final boolean readonly) {
+        return toBuilder().readonly(readonly).build();
+    }
+
+    public RuntimeParameters withWriteBackBytes(final int writeBackBytes) {
+        return toBuilder().writeBackBytes(writeBackBytes).build();
+    }
+
+    public RuntimeParameters withDurability(final Durability durability) {
+        return toBuilder().durability(durability).build();
+    }
+
+    public RuntimeParameters withInlineDataBytes(final int inlineDataBytes) {
+        return toBuilder().inlineDataBytes(inlineDataBytes).build();
+    }
+
+    public RuntimeParameters withDedupPages(final boolean dedupPages) {
+        return toBuilder().dedupPages(dedupPages).build();
+    }
+
+    public RuntimeParameters withPageCompression(final PageCompression pageCompression) {
+        return toBuilder().pageCompression(pageCompression).build();
+    }
+
+    private Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Mutable copy of a {@link RuntimeParameters}, used by the {@code withX} methods so each only names the field it
+     * changes.
+     */
+    private static final class Builder {
+        private Path path;
+        private String password;
+        private int gcPercentage;
+        private boolean readonly;
+        private long pageCacheBytes;
+        private int writeBackBytes;
+        private Durability durability;
+        private int inlineDataBytes;
+        private boolean dedupPages;
+        private PageCompression pageCompression;
+
+        private Builder(final RuntimeParameters runtimeParameters) {
+            this.path = runtimeParameters.path;
+            this.password = runtimeParameters.password;
+            this.gcPercentage = runtimeParameters.gcPercentage;
+            this.readonly = runtimeParameters.readonly;
+            this.pageCacheBytes = runtimeParameters.pageCacheBytes;
+            this.writeBackBytes = runtimeParameters.writeBackBytes;
+            this.durability = runtimeParameters.durability;
+            this.inlineDataBytes = runtimeParameters.inlineDataBytes;
+            this.dedupPages = runtimeParameters.dedupPages;
+            this.pageCompression = runtimeParameters.pageCompression;
+        }
+
+        private Builder readonly(final boolean readonly) {
+            this.readonly = readonly;
+            return this;
+        }
+
+        private Builder writeBackBytes(final int writeBackBytes) {
+            this.writeBackBytes = writeBackBytes;
+            return this;
+        }
+
+        private Builder durability(final Durability durability) {
+            this.durability = durability;
+            return this;
+        }
+
+        private Builder inlineDataBytes(final int inlineDataBytes) {
+            this.inlineDataBytes = inlineDataBytes;
+            return this;
+        }
+
+        private Builder dedupPages(final boolean dedupPages) {
+            this.dedupPages = dedupPages;
+            return this;
+        }
+
+        private Builder pageCompression(final PageCompression pageCompression) {
+            this.pageCompression = pageCompression;
+            return this;
+        }
+
+        private RuntimeParameters build() {
+            return new RuntimeParameters(
+                    path,
+                    password,
+                    gcPercentage,
+                    readonly,
+                    pageCacheBytes,
+                    writeBackBytes,
+                    durability,
+                    inlineDataBytes,
+                    dedupPages,
+                    pageCompression);
+        }
     }
 }
@@ -16,7 +16,6 @@
 
 package org.jrivard.jcxfs.xodusfs;
 
-import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import java.util.Map;
 import jetbrains.exodus.env.Transaction;
@@ -32,7 +31,9 @@ interface StoreBucket {
 
     void close();
 
-    static <K, V> Cache<K, V> makeCache(final EnvironmentWrapper environmentWrapper) {
-        return Caffeine.newBuilder().maximumSize(CACHE_MAX_ITEMS).build();
+    static <K, V> StoreCache<K, V> makeCache(final EnvironmentWrapper environmentWrapper) {
+        return new StoreCache<>(
+                environmentWrapper,
+                Caffeine.newBuilder().maximumSize(CACHE_MAX_ITEMS).build());
     }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import jetbrains.exodus.env.Transaction;
+
+/**
+ * Cache of store contents that only ever holds committed state.  Readonly transactions populate the cache as long as
+ * no write has committed since they began.  A write transaction records its puts and invalidations in a
+ * {@link Journal}, which is applied once the transaction commits and dropped if it aborts, and bypasses the cache for
+ * keys it has changed itself.
+ */
+final class StoreCache<K, V> {
+    private final EnvironmentWrapper environmentWrapper;
+    private final Cache<K, V> cache;
+
+    StoreCache(final EnvironmentWrapper environmentWrapper, final Cache<K, V> cache) {
+        this.environmentWrapper = environmentWrapper;
+        this.cache = cache;
+    }
+
+    Cache<K, V> cache() {
+        return cache;
+    }
+
+    /**
+     * Look up committed state, for use outside of a transaction.
+     */
+    V getIfPresent(final K key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Look up the value as seen by {@code txn}, returns null when it is not cached or has been changed by the
+     * transaction.
+     */
+    V getIfPresent(final Transaction txn, final K key) {
+        final Journal journal = environmentWrapper.cacheJournal(txn);
+        if (journal != null && journal.isChanged(this, key)) {
+            return null;
+        }
+        return cache.getIfPresent(key);
+    }
+
+    V get(final Transaction txn, final K key, final Function<? super K, ? extends V> loader) {
+        final V cachedValue = getIfPresent(txn, key);
+        if (cachedValue != null) {
+            return cachedValue;
+        }
+
+        final V value = loader.apply(key);
+        if (value != null) {
+            put(txn, key, value);
+        }
+        return value;
+    }
+
+    void put(final Transaction txn, final K key, final V value) {
+        final Journal journal = environmentWrapper.cacheJournal(txn);
+        if (journal == null) {
+            environmentWrapper.putIfCurrent(txn, () -> cache.put(key, value));
+        } else {
+            journal.record(() -> cache.put(key, value));
+        }
+    }
+
+    void invalidate(final Transaction txn, final K key) {
+        final Journal journal = environmentWrapper.cacheJournal(txn);
+        if (journal == null) {
+            cache.invalidate(key);
+        } else {
+            journal.changed(this, key);
+            journal.record(() -> cache.invalidate(key));
+        }
+    }
+
+    /**
+     * Cache changes and other in-memory effects of a single write transaction, in the order they were made.  Only
+     * used by the thread running the transaction.
+     */
+    static final class Journal {
+        private final List<Runnable> actions = new ArrayList<>();
+        private final Set<ChangedKey> changedKeys = new HashSet<>();
+
+        void record(final Runnable action) {
+            actions.add(action);
+        }
+
+        void changed(final StoreCache<?, ?> storeCache, final Object key) {
+            changedKeys.add(new ChangedKey(storeCache, key));
+        }
+
+        boolean isChanged(final StoreCache<?, ?> storeCache, final Object key) {
+            return !changedKeys.isEmpty() && changedKeys.contains(new ChangedKey(storeCache, key));
+        }
+
+        void clear() {
+            actions.clear();
+            changedKeys.clear();
+        }
+
+        void apply() {
+            actions.forEach(Runnable::run);
+        }
+    }
+
+    private record ChangedKey(StoreCache<?, ?> storeCache, Object key) {}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes to a single file that have not been committed yet.  Pending data is held as one contiguous extent, a write
+ * that starts inside or directly after the extent is merged into it, anything else requires the extent to be
+ * committed first.  Runs of small appends are therefore committed as a few whole pages in one transaction instead
+ * of one transaction per write.
+ *
+ * <p>All mutation happens with the buffer monitor held.  The extent end is also published through a volatile field so
+ * that file length queries running inside a transaction can consult it without taking the monitor.</p>
+ */
+final class WriteBackBuffer {
+    private final long nodeId;
+
+    private byte[] data = new byte[0];
+    private long startOffset;
+    private int length;
+    private long firstWriteNanos;
+    private boolean retired;
+
+    private volatile long endOffset;
+
+    WriteBackBuffer(final long nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    long nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return the offset just past the last pending byte, or zero if nothing is pending.
+     */
+    long endOffset() {
+        return endOffset;
+    }
+
+    boolean isEmpty() {
+        return length == 0;
+    }
+
+    int length() {
+        return length;
+    }
+
+    long startOffset() {
+        return startOffset;
+    }
+
+    long firstWriteNanos() {
+        return firstWriteNanos;
+    }
+
+    /**
+     * A retired buffer has been removed from the set of live buffers and must not accept further writes.
+     */
+    boolean isRetired() {
+        return retired;
+    }
+
+    void retire() {
+        retired = true;
+        data = new byte[0];
+    }
+
+    boolean canAppend(final long offset) {
+        return length == 0 || (offset >= startOffset && offset <= startOffset + length);
+    }
+
+    /**
+     * Merge a write into the pending extent.  The caller must check {@link #canAppend(long)} first.
+     */
+    void append(final ByteBuffer buf, final int count, final long offset) {
+        if (length == 0) {
+            startOffset = offset;
+            firstWriteNanos = System.nanoTime();
+        }
+
+        final int position = Math.toIntExact(offset - startOffset);
+        final int newLength = Math.max(length, position + count);
+        if (newLength > data.length) {
+            data = Arrays.copyOf(data, Math.max(newLength, data.length * 2));
+        }
+
+        buf.get(buf.position(), data, position, count);
+        length = newLength;
+        endOffset = startOffset + length;
+    }
+
+    /**
+     * Copy pending data into {@code buf} if the requested range lies entirely within the extent.
+     *
+     * @return the number of bytes copied, or -1 if the range is not fully covered by pending data.
+     */
+    int read(final ByteBuffer buf, final int count, final long offset) {
+        if (length == 0 || offset < startOffset || offset + count > startOffset + length) {
+            return -1;
+        }
+
+        buf.put(buf.position(), data, Math.toIntExact(offset - startOffset), count);
+        return count;
+    }
+
+    /**
+     * @return the pending data, positioned for a single write at {@link #startOffset()}.
+     */
+    ByteBuffer contents() {
+        return ByteBuffer.wrap(data, 0, length);
+    }
+
+    void clear() {
+        length = 0;
+        endOffset = 0;
+    }
+}
@@ -18,29 +18,56 @@ package org.jrivard.jcxfs.xodusfs;
 
 import java.io.Closeable;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 import jetbrains.exodus.env.Transaction;
 
 public interface XodusFs extends Closeable {
-    int VERSION = 1;
+    int VERSION = 7;
+
+    /**
+     * {@link #fallocate(long, int, long, long)} mode flag leaving the file length unchanged, as FALLOC_FL_KEEP_SIZE.
+     */
+    int FALLOCATE_KEEP_SIZE = 0x01;
+
+    /**
+     * {@link #fallocate(long, int, long, long)} mode flag zeroing and deallocating the range, as FALLOC_FL_PUNCH_HOLE.
+     * Must be combined with {@link #FALLOCATE_KEEP_SIZE}.
+     */
+    int FALLOCATE_PUNCH_HOLE = 0x02;
+
+    long lookup(String path) throws FileOpException;
 
     long fileLength(String path) throws FileOpException;
 
     Optional<InodeEntry> readAttrs(String path) throws FileOpException;
 
+    /**
+     * Read the attributes and length of a path with a single path resolution and transaction.
+     */
+    Optional<FileStat> stat(String path) throws FileOpException;
+
     Stream<String> directoryListing(String path) throws FileOpException;
 
+    List<DirectoryEntry> readDirectory(String path) throws FileOpException;
+
+    List<DirectoryEntry> readDirectory(String path, long afterNodeId, int maxEntries) throws FileOpException;
+
     void createDirectoryEntry(String path, int mode) throws FileOpException;
 
     void removeDirectoryEntry(String path) throws FileOpException;
 
     int read(String path, ByteBuffer buf, long count, long offset) throws FileOpException;
 
-    void createFileEntry(String path, int mode) throws FileOpException;
+    int read(long nodeId, ByteBuffer buf, long count, long offset) throws FileOpException;
+
+    long createFileEntry(String path, int mode) throws FileOpException;
 
     int writeFileData(String path, ByteBuffer buf, long count, long offset) throws FileOpException;
 
+    int writeFileData(long nodeId, ByteBuffer buf, long count, long offset) throws FileOpException;
+
     @Override
     void close();
 
@@ -54,6 +81,50 @@ public interface XodusFs extends Closeable {
 
     void truncate(String path, long size) throws FileOpException;
 
+    void truncate(long nodeId, long size) throws FileOpException;
+
+    /**
+     * Find the next offset at or after {@code offset} holding data, as lseek SEEK_DATA.  Holes are tracked per page.
+     *
+     * @return the offset, or -1 if no data follows {@code offset} before the end of the file.
+     */
+    long seekData(long nodeId, long offset) throws FileOpException;
+
+    /**
+     * Find the next offset at or after {@code offset} in a hole, as lseek SEEK_HOLE.  The end of the file counts as a
+     * hole.
+     *
+     * @return the offset, or -1 if {@code offset} is at or past the end of the file.
+     */
+    long seekHole(long nodeId, long offset) throws FileOpException;
+
+    /**
+     * Allocate or deallocate a range of a file, as fallocate(2).  Supports mode 0, {@link #FALLOCATE_KEEP_SIZE} and
+     * {@link #FALLOCATE_PUNCH_HOLE} with {@link #FALLOCATE_KEEP_SIZE}, in a single transaction.
+     */
+    void fallocate(long nodeId, int mode, long offset, long length) throws FileOpException;
+
+    /**
+     * Copy a range between files, as copy_file_range(2).  Whole pages are shared with the source instead of copied
+     * when both offsets have the same position within a page, later writes to either file leave the other unchanged.
+     * Ranges within the same file must not overlap.
+     *
+     * @return the number of bytes copied, less than {@code length} if the source ends first.
+     */
+    long copyFileRange(long sourceNodeId, long sourceOffset, long targetNodeId, long targetOffset, long length)
+            throws FileOpException;
+
+    /**
+     * Open a handle for reading and writing a file node, the handle should be closed when the file is released.
+     */
+    FileHandle openHandle(long nodeId) throws FileOpException;
+
+    /**
+     * Commit all buffered writes and, if the configured {@link Durability} honours sync requests, force committed
+     * transactions to disk.
+     */
+    void sync() throws FileOpException;
+
     void writeAttrs(String path, InodeEntry entryAttrs) throws FileOpException;
 
     void createSymLink(String path, String target) throws FileOpException;
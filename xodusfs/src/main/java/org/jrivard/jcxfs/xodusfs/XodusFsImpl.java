@@ -17,7 +17,9 @@
 package org.jrivard.jcxfs.xodusfs;
 
 import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,15 +27,29 @@ import java.util.Optional;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.stream.Stream;
 import jetbrains.exodus.env.Transaction;
 import org.jrivard.jcxfs.xodusfs.util.JavaUtil;
+import org.jrivard.jcxfs.xodusfs.util.StatCounterBundle;
 import org.jrivard.jcxfs.xodusfs.util.XodusFsLogger;
 import org.slf4j.event.Level;
 
 class XodusFsImpl implements XodusFs {
     private static final XodusFsLogger LOGGER = XodusFsLogger.getLogger(XodusFsImpl.class);
 
+    private static final int DATA_GENERATION_STRIPES = 1024;
+    private static final long WRITE_BACK_DELAY_MS = 1_000;
+    private static final long DIRTY_MTIME_DELAY_MS = 5_000;
+    private static final int COPY_CHUNK_PAGES = 16 * 1024;
+
     private final EnvironmentWrapper ew;
     private final PathStore pathStore;
     private final InodeStore inodeStore;
@@ -42,6 +58,58 @@ class XodusFsImpl implements XodusFs {
 
     private final Timer timer = new Timer();
 
+    /**
+     * Counters bumped, under the environment write lock, by every change to the data of a file.  Prefetched data
+     * records the counter it was read at and is discarded once the counter moves on.  Node ids are striped over a
+     * fixed number of counters, a collision only costs an unnecessary discard.
+     */
+    private final AtomicLongArray dataGenerations = new AtomicLongArray(DATA_GENERATION_STRIPES);
+
+    private final ExecutorService readAheadExecutor = Executors.newFixedThreadPool(
+            2, Thread.ofPlatform().daemon().name("jcxfs-readahead-", 0).factory());
+
+    private final StatCounterBundle<ReadAheadStats> readAheadStats = new StatCounterBundle<>(ReadAheadStats.class);
+
+    /**
+     * Uncommitted writes per file, only used when a write-back buffer size is configured.  A buffer is shared by all
+     * handles open on the same file so that every reader sees the same pending data.  Transaction bodies may read
+     * {@link WriteBackBuffer#endOffset()} but must never take a buffer monitor, as buffers are committed while their
+     * monitor is held.
+     */
+    private final ConcurrentMap<Long, WriteBackBuffer> writeBackBuffers = new ConcurrentHashMap<>();
+
+    /**
+     * Nodes whose buffered writes could not be committed.  As with a failed kernel write-back the data is lost, the
+     * error is reported as an IO error by the next commit or sync of the node, including the commit on release.
+     */
+    private final ConcurrentMap<Long, Throwable> writeBackErrors = new ConcurrentHashMap<>();
+
+    private final int writeBackBytes;
+
+    private final StatCounterBundle<WriteBackStats> writeBackStats = new StatCounterBundle<>(WriteBackStats.class);
+
+    /**
+     * Modification times not yet written to the inode table.  Writes to a file and entry changes in a directory only
+     * record the new time here, so a stream of writes or creates does not rewrite the same inode entry in every
+     * transaction.  Attribute reads overlay these times, and they are persisted when a handle is released or synced,
+     * and periodically by the timer.
+     */
+    private final ConcurrentMap<Long, Instant> dirtyMtimes = new ConcurrentHashMap<>();
+
+    enum ReadAheadStats {
+        readAheadHits,
+        readAheadMisses,
+        readAheadPagesFetched,
+    }
+
+    enum WriteBackStats {
+        writeBackBufferedWrites,
+        writeBackCommits,
+        writeBackReadHits,
+        deferredMtimeUpdates,
+        deferredMtimePersists,
+    }
+
     private XodusFsImpl(
             final EnvironmentWrapper ew,
             final PathStore pathStore,
@@ -53,6 +121,31 @@ class XodusFsImpl implements XodusFs {
         this.inodeStore = inodeStore;
         this.dataStore = dataStore;
         this.xodusFsParams = xodusFsParams;
+        this.writeBackBytes = ew.runtimeParameters().writeBackBytes();
+
+        if (writeBackBytes > 0) {
+            timer.scheduleAtFixedRate(
+                    new TimerTask() {
+                        @Override
+                        public void run() {
+                            flushExpiredWriteBack();
+                        }
+                    },
+                    WRITE_BACK_DELAY_MS,
+                    WRITE_BACK_DELAY_MS);
+        }
+
+        if (!ew.runtimeParameters().readonly()) {
+            timer.scheduleAtFixedRate(
+                    new TimerTask() {
+                        @Override
+                        public void run() {
+                            persistDirtyMtimesQuietly();
+                        }
+                    },
+                    DIRTY_MTIME_DELAY_MS,
+                    DIRTY_MTIME_DELAY_MS);
+        }
 
         timer.scheduleAtFixedRate(
                 new TimerTask() {
@@ -70,10 +163,11 @@ class XodusFsImpl implements XodusFs {
     Map<String, Long> sizes() {
         final Map<String, Long> map = new LinkedHashMap<>();
         try {
-            ew.doExecute(txn -> {
+            ew.doRead(txn -> {
                 map.put("Files", dataStore.size(txn));
                 map.put("Inodes", inodeStore.size(txn));
                 map.put("Paths", pathStore.size(txn));
+                return null;
             });
         } catch (final FileOpException e) {
             LOGGER.debug(() -> "error generating file size map: " + e.getMessage(), e);
@@ -95,13 +189,28 @@ class XodusFsImpl implements XodusFs {
         return List.of(pathStore, inodeStore, dataStore);
     }
 
+    @Override
+    public long lookup(final String path) throws FileOpException {
+        final PathKey pathKey = PathKey.of(path);
+        if (pathStore.isCachedMissing(pathKey)) {
+            throw FileOpException.of(FileOpError.NO_SUCH_FILE, "file does not exist");
+        }
+        return ew.doRead(txn -> {
+            final long nodeId = pathStore.readEntry(txn, pathKey);
+            if (nodeId <= 0) {
+                throw RuntimeXodusFsException.of(FileOpError.NO_SUCH_FILE, "file does not exist");
+            }
+            return nodeId;
+        });
+    }
+
     @Override
     public long fileLength(final String path) throws FileOpException {
-        return ew.doCompute(txn -> {
+        return ew.doRead(txn -> {
             {
                 final long nodeId = pathStore.readEntry(txn, PathKey.of(path));
                 if (nodeId > 0) {
-                    return dataStore.length(txn, nodeId);
+                    return fileLength(txn, nodeId);
                 }
                 return -1L;
             }
@@ -110,11 +219,15 @@ class XodusFsImpl implements XodusFs {
 
     @Override
     public Optional<InodeEntry> readAttrs(final String path) throws FileOpException {
-        return ew.doCompute(txn -> {
+        final PathKey pathKey = PathKey.of(path);
+        if (pathStore.isCachedMissing(pathKey)) {
+            return Optional.empty();
+        }
+        return ew.doRead(txn -> {
             {
-                final long nodeId = pathStore.readEntry(txn, PathKey.of(path));
+                final long nodeId = pathStore.readEntry(txn, pathKey);
                 if (nodeId > 0) {
-                    return inodeStore.readEntry(txn, nodeId);
+                    return inodeStore.readEntry(txn, nodeId).map(entry -> withDirtyMtime(nodeId, entry));
                 }
             }
 
@@ -122,9 +235,128 @@ class XodusFsImpl implements XodusFs {
         });
     }
 
+    @Override
+    public Optional<FileStat> stat(final String path) throws FileOpException {
+        final PathKey pathKey = PathKey.of(path);
+        if (pathStore.isCachedMissing(pathKey)) {
+            return Optional.empty();
+        }
+        return ew.doRead(txn -> {
+            final long nodeId = pathStore.readEntry(txn, pathKey);
+            if (nodeId <= 0) {
+                return Optional.empty();
+            }
+
+            return inodeStore.readEntry(txn, nodeId).map(inodeEntry -> {
+                final long length = inodeEntry.isFile() ? fileLength(txn, nodeId) : 0;
+                return new FileStat(nodeId, withDirtyMtime(nodeId, inodeEntry), length);
+            });
+        });
+    }
+
     @Override
     public Stream<String> directoryListing(final String path) throws FileOpException {
-        return ew.doCompute(txn -> pathStore.readSubPaths(txn, PathKey.of(path)));
+        return ew.doRead(txn -> pathStore.readSubPaths(txn, PathKey.of(path)));
+    }
+
+    @Override
+    public List<DirectoryEntry> readDirectory(final String path) throws FileOpException {
+        return readDirectory(path, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<DirectoryEntry> readDirectory(final String path, final long afterNodeId, final int maxEntries)
+            throws FileOpException {
+        return ew.doRead(txn -> {
+            try (final Stream<PathRecord> childRecords =
+                    pathStore.readSubPathRecords(txn, PathKey.of(path), afterNodeId)) {
+                return childRecords
+                        .limit(maxEntries)
+                        .map(record -> toDirectoryEntry(txn, record))
+                        .toList();
+            }
+        });
+    }
+
+    private DirectoryEntry toDirectoryEntry(final Transaction txn, final PathRecord pathRecord) {
+        final long nodeId = pathRecord.id();
+        final InodeEntry inodeEntry = inodeStore
+                .readEntry(txn, nodeId)
+                .orElseThrow(() -> new IllegalStateException("missing inode entry for path record"));
+        final long length = inodeEntry.isFile() ? fileLength(txn, nodeId) : 0;
+        return new DirectoryEntry(pathRecord.name(), nodeId, withDirtyMtime(nodeId, inodeEntry), length);
+    }
+
+    private InodeEntry withDirtyMtime(final long nodeId, final InodeEntry inodeEntry) {
+        final Instant dirtyMtime = dirtyMtimes.get(nodeId);
+        return dirtyMtime == null ? inodeEntry : inodeEntry.withAtimeMtime(inodeEntry.aTime(), dirtyMtime);
+    }
+
+    /**
+     * Record a modification of the node without rewriting its inode entry.
+     */
+    private void markModified(final long nodeId) {
+        dirtyMtimes.put(nodeId, Instant.now());
+        writeBackStats.increment(WriteBackStats.deferredMtimeUpdates);
+    }
+
+    /**
+     * Record a modification made by {@code txn}, once it has committed.  An aborted transaction, including one
+     * re-run as part of a group commit, leaves the node untouched.
+     */
+    private void markModified(final Transaction txn, final long nodeId) {
+        ew.afterCommit(txn, () -> markModified(nodeId));
+    }
+
+    /**
+     * Write deferred modification times to the inode table in a single transaction.  Times recorded while the
+     * transaction waits or runs are kept for the next call, and a node whose time was replaced or dropped by
+     * {@link #writeAttrs} in the meantime is skipped.
+     */
+    void persistDirtyMtimes() throws FileOpException {
+        persistDirtyMtimes(new HashMap<>(dirtyMtimes));
+    }
+
+    private void persistDirtyMtime(final long nodeId) throws FileOpException {
+        final Instant dirtyMtime = dirtyMtimes.get(nodeId);
+        if (dirtyMtime != null) {
+            persistDirtyMtimes(Map.of(nodeId, dirtyMtime));
+        }
+    }
+
+    private void persistDirtyMtimes(final Map<Long, Instant> pending) throws FileOpException {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        ew.doExecute(txn -> pending.forEach((nodeId, mtime) -> {
+            // runs under the write lock, so writeAttrs can not drop the time between this check and the update
+            if (mtime.equals(dirtyMtimes.get(nodeId))) {
+                inodeStore
+                        .readEntry(txn, nodeId)
+                        .ifPresent(entry ->
+                                inodeStore.updateEntry(txn, nodeId, entry.withAtimeMtime(entry.aTime(), mtime)));
+            }
+        }));
+        pending.forEach((nodeId, mtime) -> dirtyMtimes.remove(nodeId, mtime));
+        writeBackStats.increment(WriteBackStats.deferredMtimePersists);
+    }
+
+    private void persistDirtyMtimesQuietly() {
+        try {
+            persistDirtyMtimes();
+        } catch (final FileOpException | RuntimeException e) {
+            LOGGER.error(() -> "error persisting modification times: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stored length of a file extended by any pending buffered writes.
+     */
+    private long fileLength(final Transaction txn, final long nodeId) {
+        final long storedLength = dataStore.length(txn, nodeId);
+        final WriteBackBuffer buffer = writeBackBuffers.get(nodeId);
+        return buffer == null ? storedLength : Math.max(storedLength, buffer.endOffset());
     }
 
     @Override
@@ -135,7 +367,7 @@ class XodusFsImpl implements XodusFs {
     @Override
     public void removeDirectoryEntry(final String path) throws FileOpException {
         final PathKey pathKey = PathKey.of(path);
-        ew.doExecute(txn -> {
+        final long removedNodeId = ew.doCompute(txn -> {
             final long parentNodeId = pathStore.readEntry(txn, pathKey.parent());
             if (parentNodeId <= 0) {
                 throw RuntimeXodusFsException.of(FileOpError.NO_SUCH_DIR, "parent directory does not exist");
@@ -162,39 +394,123 @@ class XodusFsImpl implements XodusFs {
 
             pathStore.removeEntry(txn, pathKey);
             inodeStore.removeEntry(txn, nodeId);
-            updateMtime(txn, parentNodeId);
+            markModified(txn, parentNodeId);
+            return nodeId;
         });
+        dirtyMtimes.remove(removedNodeId);
     }
 
     @Override
     public int read(final String path, final ByteBuffer buf, final long count, final long offset)
             throws FileOpException {
-        return ew.doCompute(txn -> {
+        if (!writeBackBuffers.isEmpty()) {
+            return read(lookup(path), buf, count, offset);
+        }
+
+        return ew.doRead(txn -> {
             final long nodeId = pathStore.readEntry(txn, PathKey.of(path));
             if (nodeId <= 0) {
                 throw RuntimeXodusFsException.of(FileOpError.NO_SUCH_FILE, "file does not exist");
             }
 
-            final InodeEntry inodeEntry = inodeStore
-                    .readEntry(txn, nodeId)
-                    .orElseThrow(() -> RuntimeXodusFsException.of(FileOpError.NO_SUCH_FILE, "no such file"));
+            return readImpl(txn, nodeId, buf, count, offset);
+        });
+    }
 
-            if (!inodeEntry.isFile()) {
-                throw RuntimeXodusFsException.of(FileOpError.NOT_A_FILE, "path is not a file");
-            }
+    @Override
+    public int read(final long nodeId, final ByteBuffer buf, final long count, final long offset)
+            throws FileOpException {
+        return read(nodeId, buf, count, offset, true);
+    }
+
+    int read(final long nodeId, final ByteBuffer buf, final long count, final long offset, final boolean cachePages)
+            throws FileOpException {
+        final int bufferedBytes = readWriteBack(nodeId, buf, count, offset);
+        if (bufferedBytes >= 0) {
+            return bufferedBytes;
+        }
 
-            return dataStore.readData(txn, nodeId, buf, count, offset);
+        return ew.doRead(txn -> {
+            readFileInode(txn, nodeId);
+            return dataStore.readData(txn, nodeId, buf, count, offset, cachePages);
         });
     }
 
+    private int readImpl(
+            final Transaction txn, final long nodeId, final ByteBuffer buf, final long count, final long offset) {
+        readFileInode(txn, nodeId);
+        return dataStore.readData(txn, nodeId, buf, count, offset);
+    }
+
+    @Override
+    public FileHandle openHandle(final long nodeId) throws FileOpException {
+        ew.doRead(txn -> readFileInode(txn, nodeId));
+        return new FileHandle(this, nodeId, xodusFsParams.pageSize());
+    }
+
+    CompletableFuture<ReadAheadChunk> readAhead(final long nodeId, final int firstPage, final int pageCount) {
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        final long generation = dataGeneration(nodeId);
+                        return ew.doRead(txn -> {
+                            final long fileLength = dataStore.length(txn, nodeId);
+                            final byte[][] pages = dataStore.readPages(txn, nodeId, firstPage, pageCount);
+                            readAheadStats.increment(ReadAheadStats.readAheadPagesFetched, pageCount);
+                            return new ReadAheadChunk(
+                                    generation, fileLength, xodusFsParams.pageSize(), firstPage, pages);
+                        });
+                    } catch (final FileOpException e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                readAheadExecutor);
+    }
+
+    long dataGeneration(final long nodeId) {
+        return dataGenerations.get(dataGenerationStripe(nodeId));
+    }
+
+    /**
+     * Invalidate read-ahead chunks of the node once {@code txn} has committed.  Read-ahead takes the generation
+     * before its snapshot begins, so a chunk read from a snapshot older than the commit is never reused.
+     */
+    private void bumpDataGeneration(final Transaction txn, final long nodeId) {
+        ew.afterCommit(txn, () -> dataGenerations.incrementAndGet(dataGenerationStripe(nodeId)));
+    }
+
+    private static int dataGenerationStripe(final long nodeId) {
+        return (int) ((nodeId ^ (nodeId >>> 32)) & (DATA_GENERATION_STRIPES - 1));
+    }
+
+    StatCounterBundle<ReadAheadStats> readAheadStats() {
+        return readAheadStats;
+    }
+
+    StatCounterBundle<WriteBackStats> writeBackStats() {
+        return writeBackStats;
+    }
+
+    private InodeEntry readFileInode(final Transaction txn, final long nodeId) {
+        final InodeEntry inodeEntry = inodeStore
+                .readEntry(txn, nodeId)
+                .orElseThrow(() -> RuntimeXodusFsException.of(FileOpError.NO_SUCH_FILE, "no such file"));
+
+        if (!inodeEntry.isFile()) {
+            throw RuntimeXodusFsException.of(FileOpError.NOT_A_FILE, "path is not a file");
+        }
+
+        return inodeEntry;
+    }
+
     @Override
-    public void createFileEntry(final String path, final int mode) throws FileOpException {
-        createEntryImpl(path, InodeEntry.newFileEntry(mode));
+    public long createFileEntry(final String path, final int mode) throws FileOpException {
+        return createEntryImpl(path, InodeEntry.newFileEntry(mode));
     }
 
-    private void createEntryImpl(final String path, final InodeEntry newEntry) throws FileOpException {
+    private long createEntryImpl(final String path, final InodeEntry newEntry) throws FileOpException {
         final PathKey pathKey = PathKey.of(path);
-        ew.doExecute(txn -> {
+        return ew.doCompute(txn -> {
             final long parentNodeId = pathStore.readEntry(txn, pathKey.parent());
             final InodeEntry parentEntry = inodeStore
                     .readEntry(txn, parentNodeId)
@@ -207,37 +523,239 @@ class XodusFsImpl implements XodusFs {
             final long newId = inodeStore.issuer().nextId(txn);
             pathStore.createEntry(txn, pathKey, newId);
             inodeStore.createEntry(txn, newId, newEntry);
-            inodeStore.updateEntry(txn, parentNodeId, parentEntry.withMtimeNow());
+            markModified(txn, parentNodeId);
+            return newId;
         });
     }
 
     @Override
     public int writeFileData(final String path, final ByteBuffer buf, final long count, final long offset)
             throws FileOpException {
-        return ew.doCompute(txn -> {
+        if (!writeBackBuffers.isEmpty()) {
+            return writeFileData(lookup(path), buf, count, offset);
+        }
+
+        final int bytesWritten = ew.doCompute(txn -> {
             final long nodeId = pathStore.readEntry(txn, PathKey.of(path));
             if (nodeId <= 0) {
                 throw RuntimeXodusFsException.of(FileOpError.NO_SUCH_FILE, "file does not exist");
             }
 
-            final InodeEntry inodeEntry = inodeStore
-                    .readEntry(txn, nodeId)
-                    .orElseThrow(() -> RuntimeXodusFsException.of(FileOpError.NO_SUCH_FILE, "no such file"));
+            return writeFileDataImpl(txn, nodeId, buf, count, offset);
+        });
+        buf.position(buf.position() + bytesWritten);
+        return bytesWritten;
+    }
 
-            if (!inodeEntry.isFile()) {
-                throw RuntimeXodusFsException.of(FileOpError.NOT_A_FILE, "path is not a file");
+    @Override
+    public int writeFileData(final long nodeId, final ByteBuffer buf, final long count, final long offset)
+            throws FileOpException {
+        flushWriteBack(nodeId);
+        final int bytesWritten = ew.doCompute(txn -> writeFileDataImpl(txn, nodeId, buf, count, offset));
+        buf.position(buf.position() + bytesWritten);
+        return bytesWritten;
+    }
+
+    boolean isWriteBackEnabled() {
+        return writeBackBytes > 0;
+    }
+
+    boolean hasWriteBack(final long nodeId) {
+        return writeBackBuffers.containsKey(nodeId);
+    }
+
+    /**
+     * Add a write to the write-back buffer of the file.  The pending extent is committed first if the write is not
+     * adjacent to it, and afterwards if it has grown past the configured size.  The modification time of the file is
+     * that of the accepted write, not of the later commit.
+     */
+    int bufferWrite(final long nodeId, final ByteBuffer buf, final long count, final long offset)
+            throws FileOpException {
+        final int intCount = Math.toIntExact(count);
+        while (true) {
+            final WriteBackBuffer buffer = writeBackBuffers.computeIfAbsent(nodeId, WriteBackBuffer::new);
+            synchronized (buffer) {
+                if (buffer.isRetired()) {
+                    continue;
+                }
+
+                if (!buffer.canAppend(offset)) {
+                    commitWriteBack(buffer);
+                }
+
+                buffer.append(buf, intCount, offset);
+                writeBackStats.increment(WriteBackStats.writeBackBufferedWrites);
+                markModified(nodeId);
+
+                if (buffer.length() >= writeBackBytes) {
+                    commitWriteBack(buffer);
+                }
+
+                return intCount;
             }
+        }
+    }
 
-            final int bytesWritten = dataStore.writeData(txn, nodeId, buf, count, offset);
-            final InodeEntry newInodeEntry = inodeEntry.withMtimeNow();
-            inodeStore.updateEntry(txn, nodeId, newInodeEntry);
-            return bytesWritten;
-        });
+    @Override
+    public void sync() throws FileOpException {
+        for (final long nodeId : writeBackBuffers.keySet()) {
+            flushWriteBack(nodeId);
+        }
+        persistDirtyMtimes();
+        ew.sync();
+    }
+
+    /**
+     * Commit buffered writes and the deferred modification time of the file.  Fails if buffered writes to the file
+     * were lost since the last commit.
+     */
+    void commit(final long nodeId) throws FileOpException {
+        try {
+            flushWriteBack(nodeId);
+        } catch (final FileOpException | RuntimeException e) {
+            // reported to this caller, no need to report the same loss again
+            writeBackErrors.remove(nodeId);
+            throw e;
+        }
+
+        final Throwable writeBackError = writeBackErrors.remove(nodeId);
+        if (writeBackError != null) {
+            throw FileOpException.of(
+                    FileOpError.IO_ERROR, "buffered writes could not be committed: " + writeBackError.getMessage());
+        }
+
+        persistDirtyMtime(nodeId);
+    }
+
+    /**
+     * Commit buffered writes to the file and, if the configured {@link Durability} honours sync requests, force
+     * committed transactions to disk.
+     */
+    void sync(final long nodeId) throws FileOpException {
+        commit(nodeId);
+        ew.sync();
+    }
+
+    /**
+     * Commit and drop the write-back buffer of the file, if any.
+     */
+    void flushWriteBack(final long nodeId) throws FileOpException {
+        final WriteBackBuffer buffer = writeBackBuffers.get(nodeId);
+        if (buffer == null) {
+            return;
+        }
+
+        synchronized (buffer) {
+            try {
+                commitWriteBack(buffer);
+            } finally {
+                buffer.retire();
+                writeBackBuffers.remove(nodeId, buffer);
+            }
+        }
+    }
+
+    private void discardWriteBack(final long nodeId) {
+        final WriteBackBuffer buffer = writeBackBuffers.get(nodeId);
+        if (buffer != null) {
+            synchronized (buffer) {
+                buffer.retire();
+                writeBackBuffers.remove(nodeId, buffer);
+            }
+        }
+    }
+
+    /**
+     * Serve a read from the write-back buffer if the buffer holds the whole range.  Otherwise the pending data is
+     * committed so that the read can be served from the store.
+     *
+     * @return the number of bytes read, or -1 if the read must go to the store.
+     */
+    private int readWriteBack(final long nodeId, final ByteBuffer buf, final long count, final long offset)
+            throws FileOpException {
+        final WriteBackBuffer buffer = writeBackBuffers.get(nodeId);
+        if (buffer == null) {
+            return -1;
+        }
+
+        synchronized (buffer) {
+            final int bytesRead = buffer.read(buf, Math.toIntExact(count), offset);
+            if (bytesRead >= 0) {
+                writeBackStats.increment(WriteBackStats.writeBackReadHits);
+                return bytesRead;
+            }
+        }
+
+        flushWriteBack(nodeId);
+        return -1;
+    }
+
+    /**
+     * Commit the pending extent in a single transaction.  Must be called with the buffer monitor held.  The buffer is
+     * emptied even if the commit fails, the error is thrown to the caller that triggered the commit and also kept in
+     * {@link #writeBackErrors}, since the lost data may have been written by other callers or other handles.
+     */
+    private void commitWriteBack(final WriteBackBuffer buffer) throws FileOpException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        try {
+            final ByteBuffer contents = buffer.contents();
+            ew.doCompute(txn ->
+                    writeFileDataImpl(txn, buffer.nodeId(), contents, contents.remaining(), buffer.startOffset()));
+            writeBackStats.increment(WriteBackStats.writeBackCommits);
+        } catch (final FileOpException | RuntimeException e) {
+            writeBackErrors.put(buffer.nodeId(), e);
+            throw e;
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void flushExpiredWriteBack() {
+        final long cutoffNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(WRITE_BACK_DELAY_MS);
+        for (final WriteBackBuffer buffer : writeBackBuffers.values()) {
+            synchronized (buffer) {
+                if (!buffer.isEmpty() && buffer.firstWriteNanos() - cutoffNanos > 0) {
+                    continue;
+                }
+            }
+            flushWriteBackQuietly(buffer.nodeId());
+        }
+    }
+
+    private void flushWriteBackQuietly(final long nodeId) {
+        try {
+            flushWriteBack(nodeId);
+        } catch (final FileOpException | RuntimeException e) {
+            LOGGER.error(() ->
+                    "error committing buffered writes for node " + InodeId.prettyPrint(nodeId) + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the remaining contents of {@code buf} without moving its position.  The data store consumes a duplicate,
+     * so the transaction can be re-run as part of a group commit and callers advance the buffer once it has
+     * committed.
+     */
+    private int writeFileDataImpl(
+            final Transaction txn, final long nodeId, final ByteBuffer buf, final long count, final long offset) {
+        final InodeEntry inodeEntry = readFileInode(txn, nodeId);
+
+        bumpDataGeneration(txn, nodeId);
+        final int bytesWritten =
+                dataStore.writeData(txn, nodeId, buf.duplicate(), count, offset, !inodeEntry.noCompress());
+        markModified(txn, nodeId);
+        return bytesWritten;
     }
 
     private void outputRuntimeStats() {
         final TreeMap<String, String> outputMap = new TreeMap<>();
         storeBuckets().forEach(bucket -> outputMap.putAll(bucket.runtimeStats()));
+        outputMap.putAll(readAheadStats.debugStats());
+        outputMap.putAll(writeBackStats.debugStats());
+        outputMap.putAll(ew.commitStats().debugStats());
         if (LOGGER.isLevel(Level.DEBUG)) {
             LOGGER.debug("Runtime Stats:");
             //  final int maxStatWidth =
@@ -251,8 +769,11 @@ class XodusFsImpl implements XodusFs {
 
     @Override
     public void close() {
-        outputRuntimeStats();
         timer.cancel();
+        writeBackBuffers.keySet().forEach(this::flushWriteBackQuietly);
+        persistDirtyMtimesQuietly();
+        outputRuntimeStats();
+        readAheadExecutor.shutdownNow();
         pathStore.close();
         inodeStore.close();
         dataStore.close();
@@ -262,7 +783,7 @@ class XodusFsImpl implements XodusFs {
     @Override
     public void removeFileEntry(final String path) throws FileOpException {
         final PathKey pathKey = PathKey.of(path);
-        ew.doExecute(txn -> {
+        final long removedNodeId = ew.doCompute(txn -> {
             final long nodeId = pathStore.readEntry(txn, pathKey);
             if (nodeId <= 0) {
                 throw RuntimeXodusFsException.of(FileOpError.NO_SUCH_FILE, "file does not exist");
@@ -283,9 +804,14 @@ class XodusFsImpl implements XodusFs {
 
             inodeStore.removeEntry(txn, nodeId);
             pathStore.removeEntry(txn, pathKey);
-            updateMtime(txn, parentNodeId);
+            markModified(txn, parentNodeId);
+            bumpDataGeneration(txn, nodeId);
             dataStore.deleteEntry(txn, nodeId);
+            return nodeId;
         });
+        discardWriteBack(removedNodeId);
+        writeBackErrors.remove(removedNodeId);
+        dirtyMtimes.remove(removedNodeId);
     }
 
     @Override
@@ -298,7 +824,7 @@ class XodusFsImpl implements XodusFs {
     @Override
     public StatfsInfo readStatfsInfo() throws FileOpException {
         final long freeSpace = this.ew.envPath().toFile().getFreeSpace();
-        final long pagesUsed = ew.doCompute(dataStore::totalPagesUsed);
+        final long pagesUsed = ew.doRead(dataStore::totalPagesUsed);
 
         return new StatfsInfo(xodusFsParams.pageSize(), pagesUsed, freeSpace);
     }
@@ -309,16 +835,125 @@ class XodusFsImpl implements XodusFs {
 
     @Override
     public void truncate(final String path, final long size) throws FileOpException {
+        if (!writeBackBuffers.isEmpty()) {
+            truncate(lookup(path), size);
+            return;
+        }
+
         ew.doExecute(txn -> {
             final long nodeId = pathStore.readEntry(txn, PathKey.of(path));
             if (nodeId <= 0) {
                 throw RuntimeXodusFsException.of(FileOpError.NO_SUCH_FILE, "file does not exist");
             }
 
+            bumpDataGeneration(txn, nodeId);
+            dataStore.truncate(txn, nodeId, size);
+        });
+    }
+
+    @Override
+    public void truncate(final long nodeId, final long size) throws FileOpException {
+        flushWriteBack(nodeId);
+        ew.doExecute(txn -> {
+            readFileInode(txn, nodeId);
+            bumpDataGeneration(txn, nodeId);
             dataStore.truncate(txn, nodeId, size);
         });
     }
 
+    @Override
+    public long seekData(final long nodeId, final long offset) throws FileOpException {
+        flushWriteBack(nodeId);
+        return ew.doRead(txn -> {
+            readFileInode(txn, nodeId);
+            return dataStore.seekData(txn, nodeId, offset);
+        });
+    }
+
+    @Override
+    public long seekHole(final long nodeId, final long offset) throws FileOpException {
+        flushWriteBack(nodeId);
+        return ew.doRead(txn -> {
+            readFileInode(txn, nodeId);
+            return dataStore.seekHole(txn, nodeId, offset);
+        });
+    }
+
+    @Override
+    public void fallocate(final long nodeId, final int mode, final long offset, final long length)
+            throws FileOpException {
+        if (offset < 0 || length <= 0) {
+            throw FileOpException.of(FileOpError.INVALID_ARGUMENT, "invalid fallocate range");
+        }
+
+        final boolean punchHole =
+                switch (mode) {
+                    case 0, FALLOCATE_KEEP_SIZE -> false;
+                    case FALLOCATE_PUNCH_HOLE | FALLOCATE_KEEP_SIZE -> true;
+                    default -> throw FileOpException.of(
+                            FileOpError.NOT_SUPPORTED, "unsupported fallocate mode " + mode);
+                };
+
+        flushWriteBack(nodeId);
+        ew.doExecute(txn -> {
+            readFileInode(txn, nodeId);
+            bumpDataGeneration(txn, nodeId);
+            if (punchHole) {
+                dataStore.punchHole(txn, nodeId, offset, length);
+            } else {
+                dataStore.allocate(txn, nodeId, offset, length, mode == FALLOCATE_KEEP_SIZE);
+            }
+        });
+        if (mode != FALLOCATE_KEEP_SIZE) {
+            markModified(nodeId);
+        }
+    }
+
+    @Override
+    public long copyFileRange(
+            final long sourceNodeId,
+            final long sourceOffset,
+            final long targetNodeId,
+            final long targetOffset,
+            final long length)
+            throws FileOpException {
+        if (sourceOffset < 0 || targetOffset < 0 || length < 0) {
+            throw FileOpException.of(FileOpError.INVALID_ARGUMENT, "invalid copy range");
+        }
+        if (sourceNodeId == targetNodeId
+                && sourceOffset < targetOffset + length
+                && targetOffset < sourceOffset + length) {
+            throw FileOpException.of(FileOpError.INVALID_ARGUMENT, "overlapping copy range");
+        }
+
+        flushWriteBack(sourceNodeId);
+        flushWriteBack(targetNodeId);
+
+        // large copies are split so a single transaction does not hold an unbounded number of page changes
+        final long chunkLength = (long) xodusFsParams.pageSize() * COPY_CHUNK_PAGES;
+        long copied = 0;
+        while (copied < length) {
+            final long offset = copied;
+            final long requested = Math.min(chunkLength, length - copied);
+            final long chunkCopied = ew.doCompute(txn -> {
+                readFileInode(txn, sourceNodeId);
+                readFileInode(txn, targetNodeId);
+                bumpDataGeneration(txn, targetNodeId);
+                return dataStore.copyRange(
+                        txn, sourceNodeId, sourceOffset + offset, targetNodeId, targetOffset + offset, requested);
+            });
+            copied += chunkCopied;
+            if (chunkCopied < requested) {
+                break;
+            }
+        }
+
+        if (copied > 0) {
+            markModified(targetNodeId);
+        }
+        return copied;
+    }
+
     @Override
     public void updateMtime(final Transaction txn, final long nodeId) {
         final InodeEntry existingEntry = inodeStore
@@ -330,12 +965,21 @@ class XodusFsImpl implements XodusFs {
 
     @Override
     public void writeAttrs(final String path, final InodeEntry entryAttrs) throws FileOpException {
+        // buffered writes committed after the update would replace an explicitly written modification time
+        final long bufferedNodeId = ew.doRead(txn -> pathStore.readEntry(txn, PathKey.of(path)));
+        if (bufferedNodeId > 0) {
+            flushWriteBack(bufferedNodeId);
+        }
+
         ew.doExecute(txn -> {
-            {
-                final long nodeId = pathStore.readEntry(txn, PathKey.of(path));
-                if (nodeId > 0) {
-                    inodeStore.updateEntry(txn, nodeId, entryAttrs);
-                }
+            final long nodeId = pathStore.readEntry(txn, PathKey.of(path));
+            if (nodeId > 0) {
+                inodeStore.updateEntry(txn, nodeId, entryAttrs);
+
+                // explicitly written attributes replace any deferred modification time.  Dropped inside the
+                // transaction, so a persist of the old time queued behind this one, even in the same batch, skips it.
+                // Dropping it again when a group commit re-runs this mutation is harmless.
+                dirtyMtimes.remove(nodeId);
             }
         });
     }
@@ -347,7 +991,7 @@ class XodusFsImpl implements XodusFs {
 
     @Override
     public String readSymLink(final String path) throws FileOpException {
-        return ew.doCompute(txn -> {
+        return ew.doRead(txn -> {
             final long nodeId = pathStore.readEntry(txn, PathKey.of(path));
             if (nodeId <= 0) {
                 throw RuntimeXodusFsException.of(FileOpError.NO_SUCH_FILE, "file does not exist");
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import jetbrains.exodus.env.Transaction;
+import org.jrivard.jcxfs.xodusfs.util.XodusFsLogger;
+
+/**
+ * Brings the stored structures of a database created by an older version up to {@link XodusFs#VERSION}.  Each
+ * step advances the database a single version and records the new version in the same transaction, so an
+ * interrupted upgrade continues from the last completed step on the next open.
+ */
+final class XodusFsUpgrade {
+    private static final XodusFsLogger LOGGER = XodusFsLogger.getLogger(XodusFsUpgrade.class);
+
+    private static final int FIRST_VERSION = 1;
+
+    private XodusFsUpgrade() {}
+
+    static StoredInternalEnvParams upgrade(
+            final EnvironmentWrapper environmentWrapper, final StoredInternalEnvParams storedParams)
+            throws JcxfsException {
+        if (storedParams.version() < FIRST_VERSION || storedParams.version() > XodusFs.VERSION) {
+            throw new JcxfsException("unknown database version '" + storedParams.version() + "'");
+        }
+
+        if (storedParams.version() == XodusFs.VERSION) {
+            return storedParams;
+        }
+
+        if (environmentWrapper.runtimeParameters().readonly()) {
+            throw new JcxfsException("database version '" + storedParams.version() + "' must be upgraded to version '"
+                    + XodusFs.VERSION + "' by opening it without readonly");
+        }
+
+        StoredInternalEnvParams currentParams = storedParams;
+        while (currentParams.version() < XodusFs.VERSION) {
+            final StoredInternalEnvParams nextParams =
+                    new StoredInternalEnvParams(currentParams.version() + 1, currentParams.pageSize());
+            final int fromVersion = currentParams.version();
+            try {
+                environmentWrapper.doExecute(txn -> {
+                    upgradeStep(environmentWrapper, txn, fromVersion);
+                    environmentWrapper.writeXodusFsParams(txn, nextParams);
+                });
+            } catch (final FileOpException e) {
+                throw new JcxfsException(
+                        "error upgrading database from version '" + fromVersion + "': " + e.getMessage(), e);
+            }
+            LOGGER.info(() -> "upgraded database from version '" + fromVersion + "' to '" + nextParams.version() + "'");
+            currentParams = nextParams;
+        }
+        return currentParams;
+    }
+
+    private static void upgradeStep(
+            final EnvironmentWrapper environmentWrapper, final Transaction txn, final int fromVersion) {
+        switch (fromVersion) {
+            case 1 -> PathStore.buildNameIndex(environmentWrapper, txn);
+            case 2 -> InodeStore.rewriteEntries(environmentWrapper, txn);
+            case 3 -> PathStore.rewriteRecords(environmentWrapper, txn);
+            case 4 -> {
+                // version 5 may store small files inline in the data-length table, existing values remain valid
+            }
+            case 5 -> {
+                // version 6 may store shared data pages, existing raw page values remain valid
+            }
+            case 6 -> {
+                // version 7 may store compressed data pages, existing page values remain valid
+            }
+            default -> throw new IllegalStateException("no upgrade step from version '" + fromVersion + "'");
+        }
+    }
+}
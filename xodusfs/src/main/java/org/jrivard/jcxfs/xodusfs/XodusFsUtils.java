@@ -49,6 +49,9 @@ public final class XodusFsUtils {
             environmentWrapper.doExecute(txn -> {
                 for (final XodusStore dataStore : XodusStore.values()) {
                     final Store store = environmentWrapper.getStore(dataStore);
+                    if (store == null) {
+                        continue;
+                    }
                     final long count = store.count(txn);
                     xodusConsoleWriter.writeLine(dataStore + " records: " + count);
                 }
@@ -175,6 +178,7 @@ public final class XodusFsUtils {
         } else {
             environmentConfig.setGcMinUtilization(config.gcPercentage());
             environmentConfig.setGcRunEvery(3600);
+            environmentConfig.setLogDurableWrite(config.durability().durableCommits());
         }
 
         environmentConfig.setLogCacheUseNio(true);
@@ -210,13 +214,11 @@ public final class XodusFsUtils {
 
     public static XodusFsImpl open(final EnvironmentWrapper environmentWrapper) throws JcxfsException {
 
-        final var xodusFsParams = environmentWrapper
+        final var storedParams = environmentWrapper
                 .readXodusFsParams()
                 .orElseThrow(() -> new JcxfsException("unable to read xodusFsParams from db"));
 
-        if (xodusFsParams.version() != XodusFs.VERSION) {
-            throw new JcxfsException("unknown database version '" + xodusFsParams.version() + "'");
-        }
+        final var xodusFsParams = XodusFsUpgrade.upgrade(environmentWrapper, storedParams);
 
         final var inodeStore = new InodeStore(environmentWrapper);
         final var pathStore = new PathStore(environmentWrapper);
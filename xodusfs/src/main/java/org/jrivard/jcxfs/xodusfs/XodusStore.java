@@ -22,9 +22,12 @@ enum XodusStore {
     DATA(StoreConfig.WITHOUT_DUPLICATES),
     DATA_LENGTH(StoreConfig.WITHOUT_DUPLICATES),
     PATH(StoreConfig.WITH_DUPLICATES),
+    PATH_NAME(StoreConfig.WITHOUT_DUPLICATES),
     INODE(StoreConfig.WITHOUT_DUPLICATES),
     INODE_META(StoreConfig.WITHOUT_DUPLICATES),
     XODUS_META(StoreConfig.WITHOUT_DUPLICATES),
+    PAGE_BODY(StoreConfig.WITHOUT_DUPLICATES),
+    PAGE_REF(StoreConfig.WITHOUT_DUPLICATES),
     ;
 
     private final StoreConfig storeConfig;
@@ -22,6 +22,8 @@ import java.util.Iterator;
 import java.util.Map;
 
 public final class JavaUtil {
+    private static final byte[] ZERO_BYTES = new byte[8 * 1024];
+
     public static String padRight(final String input, final int length, final char appendChar) {
         return padImpl(input, length, appendChar, true);
     }
@@ -79,6 +81,18 @@ public final class JavaUtil {
         return suffixNulls;
     }
 
+    /**
+     * Write {@code count} zero bytes at the buffer position using bulk puts from a shared zero array.
+     */
+    public static void putZeros(final ByteBuffer buffer, final int count) {
+        int remaining = count;
+        while (remaining > 0) {
+            final int length = Math.min(remaining, ZERO_BYTES.length);
+            buffer.put(ZERO_BYTES, 0, length);
+            remaining -= length;
+        }
+    }
+
     public static <K, V> String mapToString(final Map<K, V> map) {
         return mapToString(map, "=", ", ");
     }
@@ -18,6 +18,7 @@ package org.jrivard.jcxfs.util;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Stream;
 import org.jrivard.jcxfs.xodusfs.util.JavaUtil;
@@ -51,6 +52,22 @@ class JavaUtilTest {
         // Assertions.assertArrayEquals( secondArray, resultArray );
     }
 
+    @Test
+    void putZeros() {
+        final int length = 20 * 1024 + 3;
+        final byte[] array = new byte[length + 2];
+        Arrays.fill(array, (byte) 0x10);
+        final ByteBuffer buffer = ByteBuffer.wrap(array);
+        buffer.position(1);
+        JavaUtil.putZeros(buffer, length);
+        Assertions.assertEquals(length + 1, buffer.position());
+        Assertions.assertEquals(0x10, array[0]);
+        Assertions.assertEquals(0x10, array[length + 1]);
+        for (int i = 1; i <= length; i++) {
+            Assertions.assertEquals(0, array[i]);
+        }
+    }
+
     static Stream<Arguments> suffixNullCountArguments() {
         final List<Arguments> arguments = new ArrayList<>();
         arguments.add(Arguments.of(new byte[] {0x10, 0x10, 0x10, 0x10}, 0));
@@ -17,9 +17,11 @@
 package org.jrivard.jcxfs.xodusfs;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Assertions;
@@ -28,6 +30,7 @@ import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
 
 @Execution(ExecutionMode.CONCURRENT)
@@ -53,6 +56,364 @@ public class DataStoreTest {
         }
     }
 
+    @ParameterizedTest
+    @EnumSource(DataStore.DataStoreImplType.class)
+    void testRewriteAfterCachedRead(final DataStore.DataStoreImplType dataStoreImplType, @TempDir Path tempFolder)
+            throws Exception {
+        final EnvironmentWrapper environmentWrapper = XodusFsTestUtils.makeEnv(tempFolder);
+        final DataStore dataStore = dataStoreImplType.makeImpl(environmentWrapper);
+        final long fid = 200;
+        final int size = 10 * 1024;
+
+        final byte[] expected = nonZeroData(size);
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(expected), size, 0));
+        Assertions.assertArrayEquals(expected, readAll(environmentWrapper, dataStore, fid, size));
+
+        final byte[] overwrite = nonZeroData(100);
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(overwrite), 100, 5000));
+        System.arraycopy(overwrite, 0, expected, 5000, overwrite.length);
+        Assertions.assertArrayEquals(expected, readAll(environmentWrapper, dataStore, fid, size));
+
+        // truncate and extend again, the cached pages must not resurrect the truncated bytes
+        environmentWrapper.doExecute(txn -> dataStore.truncate(txn, fid, 4500));
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(overwrite), 100, 6000));
+        final byte[] extended = new byte[6100];
+        System.arraycopy(expected, 0, extended, 0, 4500);
+        System.arraycopy(overwrite, 0, extended, 6000, overwrite.length);
+        Assertions.assertArrayEquals(extended, readAll(environmentWrapper, dataStore, fid, extended.length));
+    }
+
+    @ParameterizedTest
+    @EnumSource(DataStore.DataStoreImplType.class)
+    void testReadHoleAndPastEnd(final DataStore.DataStoreImplType dataStoreImplType, @TempDir Path tempFolder)
+            throws Exception {
+        final EnvironmentWrapper environmentWrapper = XodusFsTestUtils.makeEnv(tempFolder);
+        final DataStore dataStore = dataStoreImplType.makeImpl(environmentWrapper);
+        final long fid = 200;
+
+        final byte[] data = nonZeroData(10);
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(data), 10, 10_000));
+
+        final byte[] expected = new byte[10_010];
+        System.arraycopy(data, 0, expected, 10_000, data.length);
+        Assertions.assertArrayEquals(expected, readAll(environmentWrapper, dataStore, fid, expected.length));
+
+        final ByteBuffer buffer = ByteBuffer.allocate(100);
+        Assertions.assertEquals(
+                0, (int) environmentWrapper.doRead(txn -> dataStore.readData(txn, fid, buffer, 100, 20_000)));
+        Assertions.assertEquals(
+                5, (int) environmentWrapper.doRead(txn -> dataStore.readData(txn, fid, buffer, 100, 10_005)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(DataStore.DataStoreImplType.class)
+    void testInlineSmallFile(final DataStore.DataStoreImplType dataStoreImplType, @TempDir Path tempFolder)
+            throws Exception {
+        final EnvironmentWrapper environmentWrapper = XodusFsTestUtils.makeEnv(tempFolder);
+        final DataStore dataStore = dataStoreImplType.makeImpl(environmentWrapper);
+        final long fid = 200;
+        final int inlineLimit = environmentWrapper.runtimeParameters().inlineDataBytes();
+
+        // small writes stay inline and occupy no data pages
+        final byte[] expected = nonZeroData(inlineLimit + 1000);
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(expected, 0, 100), 100, 0));
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(expected, 100, 50), 50, 100));
+        Assertions.assertEquals(0L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+        Assertions.assertEquals(150, (long) environmentWrapper.doRead(txn -> dataStore.length(txn, fid)));
+        Assertions.assertArrayEquals(Arrays.copyOf(expected, 150), readAll(environmentWrapper, dataStore, fid, 150));
+        final byte[][] pages = environmentWrapper.doRead(txn -> dataStore.readPages(txn, fid, 0, 2));
+        Assertions.assertArrayEquals(Arrays.copyOf(expected, 150), Arrays.copyOf(pages[0], 150));
+        Assertions.assertNull(pages[1]);
+
+        environmentWrapper.doExecute(txn -> dataStore.truncate(txn, fid, 120));
+        Assertions.assertArrayEquals(Arrays.copyOf(expected, 120), readAll(environmentWrapper, dataStore, fid, 120));
+
+        // growing past the limit moves the contents to data pages
+        environmentWrapper.doExecute(txn -> dataStore.writeData(
+                txn, fid, ByteBuffer.wrap(expected, 120, expected.length - 120), expected.length - 120, 120));
+        Assertions.assertTrue(environmentWrapper.doRead(dataStore::totalPagesUsed) > 0);
+        Assertions.assertArrayEquals(expected, readAll(environmentWrapper, dataStore, fid, expected.length));
+
+        environmentWrapper.doExecute(txn -> dataStore.deleteEntry(txn, fid));
+        Assertions.assertEquals(0L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+
+        // an inlined file leaves no pages behind when deleted
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(expected, 0, 10), 10, 0));
+        environmentWrapper.doExecute(txn -> dataStore.deleteEntry(txn, fid));
+        Assertions.assertEquals(0, (long) environmentWrapper.doRead(txn -> dataStore.length(txn, fid)));
+        Assertions.assertEquals(0L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+    }
+
+    @ParameterizedTest
+    @EnumSource(DataStore.DataStoreImplType.class)
+    void testTruncateToPageBoundary(final DataStore.DataStoreImplType dataStoreImplType, @TempDir Path tempFolder)
+            throws Exception {
+        final EnvironmentWrapper environmentWrapper = XodusFsTestUtils.makeEnv(tempFolder);
+        final DataStore dataStore = dataStoreImplType.makeImpl(environmentWrapper);
+        final long fid = 200;
+        final int pageSize =
+                environmentWrapper.readXodusFsParams().orElseThrow().pageSize();
+
+        final byte[] data = nonZeroData(pageSize * 3);
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(data), data.length, 0));
+        environmentWrapper.doExecute(txn -> dataStore.truncate(txn, fid, pageSize));
+        Assertions.assertEquals(1L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+
+        environmentWrapper.doExecute(txn -> dataStore.truncate(txn, fid, 0));
+        Assertions.assertEquals(0L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+    }
+
+    @ParameterizedTest
+    @EnumSource(DataStore.DataStoreImplType.class)
+    void testSparseExtendAndSeek(final DataStore.DataStoreImplType dataStoreImplType, @TempDir Path tempFolder)
+            throws Exception {
+        final EnvironmentWrapper environmentWrapper = XodusFsTestUtils.makeEnv(tempFolder);
+        final DataStore dataStore = dataStoreImplType.makeImpl(environmentWrapper);
+        final long fid = 200;
+        final int pageSize =
+                environmentWrapper.readXodusFsParams().orElseThrow().pageSize();
+        final int length = pageSize * 64;
+
+        // extending a small file keeps it inline
+        final byte[] data = nonZeroData(10);
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(data), 10, 0));
+        environmentWrapper.doExecute(txn -> dataStore.truncate(txn, fid, 100));
+        Assertions.assertEquals(0L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+        Assertions.assertArrayEquals(Arrays.copyOf(data, 100), readAll(environmentWrapper, dataStore, fid, 100));
+
+        // extending past the inline limit writes only the existing data
+        environmentWrapper.doExecute(txn -> dataStore.truncate(txn, fid, length));
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(data), 10, 10L * pageSize));
+        Assertions.assertEquals(2L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+        Assertions.assertEquals(length, (long) environmentWrapper.doRead(txn -> dataStore.length(txn, fid)));
+
+        final byte[] expected = new byte[length];
+        System.arraycopy(data, 0, expected, 0, data.length);
+        System.arraycopy(data, 0, expected, 10 * pageSize, data.length);
+        Assertions.assertArrayEquals(expected, readAll(environmentWrapper, dataStore, fid, length));
+
+        Assertions.assertEquals(5, (long) environmentWrapper.doRead(txn -> dataStore.seekData(txn, fid, 5)));
+        Assertions.assertEquals(pageSize, (long) environmentWrapper.doRead(txn -> dataStore.seekHole(txn, fid, 5)));
+        Assertions.assertEquals(
+                10L * pageSize, (long) environmentWrapper.doRead(txn -> dataStore.seekData(txn, fid, pageSize)));
+        Assertions.assertEquals(
+                11L * pageSize, (long) environmentWrapper.doRead(txn -> dataStore.seekHole(txn, fid, 10L * pageSize)));
+        Assertions.assertEquals(
+                -1, (long) environmentWrapper.doRead(txn -> dataStore.seekData(txn, fid, 11L * pageSize)));
+        Assertions.assertEquals(
+                length - 1, (long) environmentWrapper.doRead(txn -> dataStore.seekHole(txn, fid, length - 1)));
+        Assertions.assertEquals(-1, (long) environmentWrapper.doRead(txn -> dataStore.seekHole(txn, fid, length)));
+
+        // shrinking and deleting a huge sparse file only visits its stored pages
+        final long hugeLength = 1L << 40;
+        environmentWrapper.doExecute(txn -> dataStore.truncate(txn, fid, hugeLength));
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(data), 10, hugeLength - 10));
+        Assertions.assertEquals(3L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+        environmentWrapper.doExecute(txn -> dataStore.truncate(txn, fid, 11L * pageSize));
+        Assertions.assertEquals(2L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+        environmentWrapper.doExecute(txn -> dataStore.truncate(txn, fid, hugeLength));
+        environmentWrapper.doExecute(txn -> dataStore.deleteEntry(txn, fid));
+        Assertions.assertEquals(0L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+    }
+
+    @ParameterizedTest
+    @EnumSource(DataStore.DataStoreImplType.class)
+    void testPunchHoleAndAllocate(final DataStore.DataStoreImplType dataStoreImplType, @TempDir Path tempFolder)
+            throws Exception {
+        final EnvironmentWrapper environmentWrapper = XodusFsTestUtils.makeEnv(tempFolder);
+        final DataStore dataStore = dataStoreImplType.makeImpl(environmentWrapper);
+        final long fid = 200;
+        final int pageSize =
+                environmentWrapper.readXodusFsParams().orElseThrow().pageSize();
+        final int length = pageSize * 10;
+
+        final byte[] expected = nonZeroData(length);
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(expected), length, 0));
+
+        // whole pages are deleted, edge pages are zeroed in place
+        environmentWrapper.doExecute(txn -> dataStore.punchHole(txn, fid, pageSize / 2, 3L * pageSize));
+        Arrays.fill(expected, pageSize / 2, pageSize / 2 + 3 * pageSize, (byte) 0);
+        environmentWrapper.doExecute(txn -> dataStore.punchHole(txn, fid, 5L * pageSize + 10, 20));
+        Arrays.fill(expected, 5 * pageSize + 10, 5 * pageSize + 30, (byte) 0);
+
+        Assertions.assertEquals(8L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+        Assertions.assertEquals(length, (long) environmentWrapper.doRead(txn -> dataStore.length(txn, fid)));
+        Assertions.assertArrayEquals(expected, readAll(environmentWrapper, dataStore, fid, length));
+
+        // allocation only changes the length, and not at all with keep size
+        environmentWrapper.doExecute(txn -> dataStore.allocate(txn, fid, length, length, true));
+        Assertions.assertEquals(length, (long) environmentWrapper.doRead(txn -> dataStore.length(txn, fid)));
+        environmentWrapper.doExecute(txn -> dataStore.allocate(txn, fid, length, length, false));
+        Assertions.assertEquals(2L * length, (long) environmentWrapper.doRead(txn -> dataStore.length(txn, fid)));
+        Assertions.assertEquals(8L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+
+        // inline files are zeroed in place
+        final long inlineFid = 201;
+        final byte[] inlineData = nonZeroData(100);
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, inlineFid, ByteBuffer.wrap(inlineData), 100, 0));
+        environmentWrapper.doExecute(txn -> dataStore.punchHole(txn, inlineFid, 10, 20));
+        Arrays.fill(inlineData, 10, 30, (byte) 0);
+        Assertions.assertArrayEquals(inlineData, readAll(environmentWrapper, dataStore, inlineFid, 100));
+    }
+
+    @ParameterizedTest
+    @EnumSource(DataStore.DataStoreImplType.class)
+    void testCopyRangeSharesPages(final DataStore.DataStoreImplType dataStoreImplType, @TempDir Path tempFolder)
+            throws Exception {
+        final EnvironmentWrapper environmentWrapper = XodusFsTestUtils.makeEnv(tempFolder);
+        final DataStore dataStore = dataStoreImplType.makeImpl(environmentWrapper);
+        final long sourceFid = 300;
+        final long targetFid = 301;
+        final int pageSize =
+                environmentWrapper.readXodusFsParams().orElseThrow().pageSize();
+        final int length = pageSize * 4 + 100;
+
+        final byte[] sourceData = nonZeroData(length);
+        environmentWrapper.doExecute(
+                txn -> dataStore.writeData(txn, sourceFid, ByteBuffer.wrap(sourceData), length, 0));
+
+        // every page including the partial last page is shared, so no page body is stored twice
+        Assertions.assertEquals(length, (long)
+                environmentWrapper.doCompute(txn -> dataStore.copyRange(txn, sourceFid, 0, targetFid, 0, length * 2L)));
+        Assertions.assertEquals(5L, countStore(environmentWrapper, XodusStore.PAGE_BODY));
+        Assertions.assertEquals(length, (long) environmentWrapper.doRead(txn -> dataStore.length(txn, targetFid)));
+        Assertions.assertArrayEquals(sourceData, readAll(environmentWrapper, dataStore, targetFid, length));
+
+        // a write to the copy replaces its page reference and leaves the source unchanged
+        final byte[] targetData = Arrays.copyOf(sourceData, length);
+        final byte[] update = nonZeroData(10);
+        System.arraycopy(update, 0, targetData, pageSize + 5, update.length);
+        environmentWrapper.doExecute(
+                txn -> dataStore.writeData(txn, targetFid, ByteBuffer.wrap(update), update.length, pageSize + 5));
+        Assertions.assertArrayEquals(targetData, readAll(environmentWrapper, dataStore, targetFid, length));
+        Assertions.assertArrayEquals(sourceData, readAll(environmentWrapper, dataStore, sourceFid, length));
+
+        // an unaligned copy falls back to copying bytes
+        final long unalignedFid = 302;
+        environmentWrapper.doCompute(txn -> dataStore.copyRange(txn, sourceFid, 10, unalignedFid, 0, length));
+        Assertions.assertArrayEquals(
+                Arrays.copyOfRange(sourceData, 10, length),
+                readAll(environmentWrapper, dataStore, unalignedFid, length - 10));
+
+        // bodies are released once no page references them
+        environmentWrapper.doExecute(txn -> dataStore.deleteEntry(txn, sourceFid));
+        Assertions.assertArrayEquals(targetData, readAll(environmentWrapper, dataStore, targetFid, length));
+        Assertions.assertEquals(4L, countStore(environmentWrapper, XodusStore.PAGE_BODY));
+        environmentWrapper.doExecute(txn -> dataStore.deleteEntry(txn, targetFid));
+        Assertions.assertEquals(0L, countStore(environmentWrapper, XodusStore.PAGE_BODY));
+        Assertions.assertEquals(0L, countStore(environmentWrapper, XodusStore.PAGE_REF));
+    }
+
+    @ParameterizedTest
+    @EnumSource(DataStore.DataStoreImplType.class)
+    void testDedupPages(final DataStore.DataStoreImplType dataStoreImplType, @TempDir Path tempFolder)
+            throws Exception {
+        final EnvironmentWrapper environmentWrapper =
+                XodusFsTestUtils.makeEnv(tempFolder, params -> params.withDedupPages(true));
+        final DataStore dataStore = dataStoreImplType.makeImpl(environmentWrapper);
+        final int pageSize =
+                environmentWrapper.readXodusFsParams().orElseThrow().pageSize();
+
+        // two files of the same repeated page store a single body
+        final byte[] page = nonZeroData(pageSize);
+        final byte[] data = new byte[pageSize * 4];
+        for (int i = 0; i < 4; i++) {
+            System.arraycopy(page, 0, data, i * pageSize, pageSize);
+        }
+        for (final long fid : new long[] {400, 401}) {
+            environmentWrapper.doExecute(txn -> dataStore.writeData(txn, fid, ByteBuffer.wrap(data), data.length, 0));
+        }
+        Assertions.assertEquals(1L, countStore(environmentWrapper, XodusStore.PAGE_BODY));
+        Assertions.assertEquals(8L, environmentWrapper.doRead(dataStore::totalPagesUsed));
+        Assertions.assertArrayEquals(data, readAll(environmentWrapper, dataStore, 400, data.length));
+        Assertions.assertEquals("8", dataStore.runtimeStats().get("dedupRatio"));
+
+        // changing a page stores a new body, truncating and deleting release them
+        final byte[] update = nonZeroData(10);
+        environmentWrapper.doExecute(
+                txn -> dataStore.writeData(txn, 400, ByteBuffer.wrap(update), update.length, pageSize * 3L));
+        Assertions.assertEquals(2L, countStore(environmentWrapper, XodusStore.PAGE_BODY));
+        environmentWrapper.doExecute(txn -> dataStore.truncate(txn, 400, pageSize * 3L));
+        Assertions.assertEquals(1L, countStore(environmentWrapper, XodusStore.PAGE_BODY));
+        environmentWrapper.doExecute(txn -> dataStore.deleteEntry(txn, 400));
+        environmentWrapper.doExecute(txn -> dataStore.deleteEntry(txn, 401));
+        Assertions.assertEquals(0L, countStore(environmentWrapper, XodusStore.PAGE_BODY));
+        Assertions.assertEquals(0L, countStore(environmentWrapper, XodusStore.PAGE_REF));
+    }
+
+    @ParameterizedTest
+    @EnumSource(DataStore.DataStoreImplType.class)
+    void testCompressedPages(final DataStore.DataStoreImplType dataStoreImplType, @TempDir Path tempFolder)
+            throws Exception {
+        final EnvironmentWrapper environmentWrapper =
+                XodusFsTestUtils.makeEnv(tempFolder, params -> params.withPageCompression(PageCompression.fast));
+        final DataStore dataStore = dataStoreImplType.makeImpl(environmentWrapper);
+        final int pageSize =
+                environmentWrapper.readXodusFsParams().orElseThrow().pageSize();
+        final int length = pageSize * 3 + 1000;
+        final byte[] text = "a line of easily compressed log text\n"
+                .repeat(length / 30)
+                .substring(0, length)
+                .getBytes(StandardCharsets.UTF_8);
+
+        // compressible pages shrink, incompressible and opted out pages are stored as written
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, 500, ByteBuffer.wrap(text), length, 0));
+        final byte[] random = nonZeroData(pageSize);
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, 501, ByteBuffer.wrap(random), pageSize, 0));
+        environmentWrapper.doExecute(txn -> dataStore.writeData(txn, 502, ByteBuffer.wrap(text), length, 0, false));
+
+        Assertions.assertTrue(storedPageLength(environmentWrapper, 500, 0) < pageSize / 4);
+        Assertions.assertEquals(pageSize, storedPageLength(environmentWrapper, 501, 0));
+        Assertions.assertEquals(pageSize, storedPageLength(environmentWrapper, 502, 0));
+        Assertions.assertEquals("4", dataStore.runtimeStats().get("pagesCompressed"));
+        Assertions.assertEquals("1", dataStore.runtimeStats().get("pagesCompressBypassed"));
+
+        Assertions.assertArrayEquals(text, readAll(environmentWrapper, dataStore, 500, length));
+        Assertions.assertArrayEquals(random, readAll(environmentWrapper, dataStore, 501, pageSize));
+        Assertions.assertArrayEquals(text, readAll(environmentWrapper, dataStore, 502, length));
+
+        // partial writes and copies of compressed pages decompress the existing contents
+        final byte[] update = nonZeroData(100);
+        System.arraycopy(update, 0, text, pageSize - 50, update.length);
+        environmentWrapper.doExecute(
+                txn -> dataStore.writeData(txn, 500, ByteBuffer.wrap(update), update.length, pageSize - 50));
+        environmentWrapper.doCompute(txn -> dataStore.copyRange(txn, 500, 0, 503, 0, length));
+        Assertions.assertArrayEquals(text, readAll(environmentWrapper, dataStore, 500, length));
+        Assertions.assertArrayEquals(text, readAll(environmentWrapper, dataStore, 503, length));
+    }
+
+    private static int storedPageLength(final EnvironmentWrapper environmentWrapper, final long fid, final int page)
+            throws Exception {
+        return environmentWrapper.doRead(txn -> environmentWrapper
+                .getStore(XodusStore.DATA)
+                .get(txn, DataKey.toByteIterable(fid, page))
+                .getLength());
+    }
+
+    private static long countStore(final EnvironmentWrapper environmentWrapper, final XodusStore xodusStore)
+            throws Exception {
+        return environmentWrapper.doRead(
+                txn -> environmentWrapper.getStore(xodusStore).count(txn));
+    }
+
+    private static byte[] readAll(
+            final EnvironmentWrapper environmentWrapper, final DataStore dataStore, final long fid, final int size)
+            throws FileOpException {
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        environmentWrapper.doRead(txn -> dataStore.readData(txn, fid, buffer, size, 0));
+        return buffer.array();
+    }
+
+    private static byte[] nonZeroData(final int length) {
+        final byte[] data = XodusFsTestUtils.makeData(length);
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == 0) {
+                data[i] = 1;
+            }
+        }
+        return data;
+    }
+
     static Stream<Arguments> testReadWriteArguments() {
         final List<Arguments> arguments = new ArrayList<>();
         for (final DataStore.DataStoreImplType type : List.of(DataStore.DataStoreImplType.byte_array)) {
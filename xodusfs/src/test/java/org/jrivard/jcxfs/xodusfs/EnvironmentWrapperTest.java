@@ -0,0 +1,145 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.bindings.StringBinding;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class EnvironmentWrapperTest {
+    @Test
+    void groupCommitIsolatesFailedMutation(@TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(tempFolder);
+        final int mutationCount = 10;
+        final int failingMutation = 4;
+        final long commitsBefore = ew.commitStats().get(EnvironmentWrapper.CommitStats.groupCommits);
+        final long mutationsBefore = ew.commitStats().get(EnvironmentWrapper.CommitStats.groupCommitMutations);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(mutationCount + 1);
+        final List<Future<Long>> futures = new ArrayList<>();
+
+        // a mutation that holds the write lock, so every other mutation queues up behind it and they are committed
+        // as one batch
+        final CountDownLatch holding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<?> holder = executor.submit(() -> {
+            ew.doExecute(txn -> {
+                holding.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            return null;
+        });
+        holding.await();
+
+        for (int i = 0; i < mutationCount; i++) {
+            final int index = i;
+            futures.add(executor.submit(() -> ew.doCompute(mutationTxn -> {
+                ew.getStore(XodusStore.XODUS_META).put(mutationTxn, key(index), key(index));
+                if (index == failingMutation) {
+                    throw RuntimeXodusFsException.of(FileOpError.IO_ERROR, "mutation failed");
+                }
+                return (long) index;
+            })));
+        }
+
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (ew.pendingMutationCount() < mutationCount && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        holder.get();
+
+        for (int i = 0; i < mutationCount; i++) {
+            if (i == failingMutation) {
+                final ExecutionException e = Assertions.assertThrows(ExecutionException.class, futures.get(i)::get);
+                Assertions.assertInstanceOf(FileOpException.class, e.getCause());
+            } else {
+                Assertions.assertEquals(i, futures.get(i).get());
+            }
+        }
+        executor.shutdown();
+
+        ew.doRead(txn -> {
+            for (int i = 0; i < mutationCount; i++) {
+                final ByteIterable value = ew.getStore(XodusStore.XODUS_META).get(txn, key(i));
+                Assertions.assertEquals(i != failingMutation, value != null);
+            }
+            return null;
+        });
+
+        Assertions.assertEquals(commitsBefore + 2, ew.commitStats().get(EnvironmentWrapper.CommitStats.groupCommits));
+        Assertions.assertEquals(
+                mutationsBefore + mutationCount + 1,
+                ew.commitStats().get(EnvironmentWrapper.CommitStats.groupCommitMutations));
+        Assertions.assertEquals(1, ew.commitStats().get(EnvironmentWrapper.CommitStats.groupCommitReruns));
+        ew.close();
+    }
+
+    @Test
+    void staleReaderDoesNotPopulateCaches(@TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(tempFolder);
+        final PathStore pathStore = new PathStore(ew);
+        final PathKey dir = PathKey.of("/dir");
+        final long dirId = Integer.MAX_VALUE + 1L;
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch committed = new CountDownLatch(1);
+        try {
+            // the reader's snapshot predates the create, which commits while the read is still open
+            final Future<Long> reader = executor.submit(() -> ew.doRead(txn -> {
+                reading.countDown();
+                try {
+                    committed.await();
+                } catch (final InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return pathStore.readEntry(txn, dir);
+            }));
+            reading.await();
+
+            ew.doExecute(txn -> pathStore.createEntry(txn, dir, dirId));
+            committed.countDown();
+
+            Assertions.assertEquals(-1L, reader.get());
+            Assertions.assertFalse(pathStore.isCachedMissing(dir));
+            Assertions.assertEquals(dirId, (long) ew.doRead(txn -> pathStore.readEntry(txn, dir)));
+        } finally {
+            committed.countDown();
+            executor.shutdown();
+        }
+        ew.close();
+    }
+
+    private static ByteIterable key(final int index) {
+        return StringBinding.stringToEntry("test-key-" + index);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 Jason D. Rivard
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jrivard.jcxfs.xodusfs;
+
+import java.time.Instant;
+import jetbrains.exodus.ByteIterable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class InodeEntryTest {
+    @Test
+    void testSerialization() {
+        final InodeEntry inodeEntry = InodeEntry.newFileEntry(0640).withUidGid(1000, 100);
+        final ByteIterable byteIterable = inodeEntry.toByteIterable();
+        Assertions.assertEquals(1, byteIterable.getBytesUnsafe()[0]);
+        Assertions.assertEquals(inodeEntry, InodeEntry.fromByteIterable(byteIterable));
+    }
+
+    @Test
+    void testSerializationLinkWithoutAtime() {
+        final InodeEntry inodeEntry = InodeEntry.newLinkEntry()
+                .withTargetPath("/dir/target éè")
+                .withAtimeMtime(null, Instant.ofEpochSecond(-5_000_000_000L, 999_999_999));
+        Assertions.assertEquals(inodeEntry, InodeEntry.fromByteIterable(inodeEntry.toByteIterable()));
+    }
+
+    @Test
+    void testSerializationNoCompress() {
+        final InodeEntry inodeEntry = InodeEntry.newFileEntry().withNoCompress(true);
+        final InodeEntry decoded = InodeEntry.fromByteIterable(inodeEntry.toByteIterable());
+        Assertions.assertTrue(decoded.noCompress());
+        Assertions.assertEquals(inodeEntry, decoded);
+        Assertions.assertFalse(
+                InodeEntry.fromByteIterable(InodeEntry.newFileEntry().toByteIterable())
+                        .noCompress());
+    }
+
+    @Test
+    void testLegacyJson() {
+        // the legacy json format only kept whole seconds
+        final Instant time = Instant.ofEpochSecond(1_700_000_000L);
+        final InodeEntry inodeEntry = new InodeEntry(
+                InodeEntry.newDirectoryEntry().mode(), time, time, time, time, 1000, 100, "/target", false);
+        final ByteIterable legacy = inodeEntry.toLegacyByteIterable();
+        Assertions.assertEquals('{', legacy.getBytesUnsafe()[0]);
+        Assertions.assertEquals(inodeEntry, InodeEntry.fromByteIterable(legacy));
+    }
+}
@@ -36,4 +36,26 @@ public class PathRecordTest {
         final PathRecord deserializedByteIterable = PathRecord.fromByteIterable(byteIterable);
         Assertions.assertEquals(pathRecord, deserializedByteIterable);
     }
+
+    @Test
+    void testLegacySerialization() {
+        final PathRecord pathRecord = new PathRecord(0x1234_5678_9ABCL, "file!1");
+        Assertions.assertEquals(pathRecord, PathRecord.fromByteIterable(pathRecord.toLegacyByteIterable()));
+    }
+
+    @Test
+    void testSortedById() {
+        final long[] ids = {0, 1, 255, 256, 65_535, 65_536, 1L << 40, Long.MAX_VALUE};
+        for (int i = 0; i < ids.length; i++) {
+            final PathRecord pathRecord = new PathRecord(ids[i], "zzz");
+            Assertions.assertEquals(pathRecord, PathRecord.fromByteIterable(pathRecord.toByteIterable()));
+            if (i > 0) {
+                final ByteIterable previous = new PathRecord(ids[i - 1], "zzz").toByteIterable();
+                final ByteIterable current = new PathRecord(ids[i], "a").toByteIterable();
+                Assertions.assertTrue(previous.compareTo(current) < 0);
+                Assertions.assertTrue(PathRecord.searchValueAfterId(ids[i - 1]).compareTo(current) <= 0);
+                Assertions.assertTrue(PathRecord.searchValueAfterId(ids[i - 1]).compareTo(previous) > 0);
+            }
+        }
+    }
 }
@@ -18,11 +18,28 @@ package org.jrivard.jcxfs.xodusfs;
 
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.env.Cursor;
+import jetbrains.exodus.env.Store;
+import org.jrivard.jcxfs.xodusfs.util.StatCounterBundle;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
 public class XodusFsTest {
     @Test
@@ -61,6 +78,526 @@ public class XodusFsTest {
         }
     }
 
+    @Test
+    void nodeIdWriteReadAfterRename(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs = XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder));
+
+        final int length = 70_000;
+        final long nodeId =
+                xodusFs.createFileEntry("/file1", InodeEntry.newFileEntry().mode());
+        Assertions.assertEquals(nodeId, xodusFs.lookup("/file1"));
+
+        final byte[] data = XodusFsTestUtils.makeData(length);
+        xodusFs.writeFileData(nodeId, ByteBuffer.wrap(data), length, 0);
+
+        xodusFs.rename("/file1", "/file2");
+        Assertions.assertThrows(FileOpException.class, () -> xodusFs.lookup("/file1"));
+
+        {
+            final ByteBuffer fileContents = ByteBuffer.allocate(length);
+            xodusFs.read(nodeId, fileContents, length, 0);
+            Assertions.assertArrayEquals(data, fileContents.array());
+        }
+
+        xodusFs.truncate(nodeId, 100);
+        Assertions.assertEquals(100, xodusFs.fileLength("/file2"));
+    }
+
+    @Test
+    void renameDirectoryWithChildren(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs = XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder));
+
+        xodusFs.createDirectoryEntry("/a", InodeEntry.newDirectoryEntry().mode());
+        xodusFs.createDirectoryEntry("/a/b", InodeEntry.newDirectoryEntry().mode());
+        final long fileId =
+                xodusFs.createFileEntry("/a/b/c", InodeEntry.newFileEntry().mode());
+        final long otherId =
+                xodusFs.createFileEntry("/other", InodeEntry.newFileEntry().mode());
+        Assertions.assertEquals(fileId, xodusFs.lookup("/a/b/c"));
+
+        xodusFs.rename("/a", "/x");
+        Assertions.assertEquals(fileId, xodusFs.lookup("/x/b/c"));
+        Assertions.assertEquals(otherId, xodusFs.lookup("/other"));
+        Assertions.assertThrows(FileOpException.class, () -> xodusFs.lookup("/a"));
+        Assertions.assertThrows(FileOpException.class, () -> xodusFs.lookup("/a/b/c"));
+
+        xodusFs.createDirectoryEntry("/a", InodeEntry.newDirectoryEntry().mode());
+        Assertions.assertThrows(FileOpException.class, () -> xodusFs.lookup("/a/b/c"));
+        Assertions.assertEquals(fileId, xodusFs.lookup("/x/b/c"));
+    }
+
+    @Test
+    void missingPathBecomesVisible(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs = XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder));
+
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertTrue(xodusFs.readAttrs("/dir").isEmpty());
+            Assertions.assertTrue(xodusFs.readAttrs("/dir/file").isEmpty());
+            Assertions.assertThrows(FileOpException.class, () -> xodusFs.lookup("/dir/file"));
+        }
+
+        xodusFs.createDirectoryEntry("/dir", InodeEntry.newDirectoryEntry().mode());
+        Assertions.assertTrue(xodusFs.readAttrs("/dir").isPresent());
+        Assertions.assertTrue(xodusFs.readAttrs("/dir/file").isEmpty());
+
+        final long fileId =
+                xodusFs.createFileEntry("/dir/other", InodeEntry.newFileEntry().mode());
+        xodusFs.rename("/dir/other", "/dir/file");
+        Assertions.assertEquals(fileId, xodusFs.lookup("/dir/file"));
+        Assertions.assertTrue(xodusFs.readAttrs("/dir/other").isEmpty());
+    }
+
+    @Test
+    void abortedWriteLeavesPathCachesUnchanged(@TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(tempFolder);
+        final PathStore pathStore = new PathStore(ew);
+        final PathKey dir = PathKey.of("/dir");
+        final long dirId = Integer.MAX_VALUE + 1L;
+
+        Assertions.assertEquals(-1L, (long) ew.doRead(txn -> pathStore.readEntry(txn, dir)));
+        Assertions.assertTrue(pathStore.isCachedMissing(dir));
+
+        Assertions.assertThrows(
+                FileOpException.class,
+                () -> ew.doExecute(txn -> {
+                    pathStore.createEntry(txn, dir, dirId);
+                    Assertions.assertEquals(dirId, pathStore.readEntry(txn, dir));
+                    throw RuntimeXodusFsException.of(FileOpError.IO_ERROR, "abort");
+                }));
+        Assertions.assertTrue(pathStore.isCachedMissing(dir));
+        Assertions.assertEquals(-1L, (long) ew.doRead(txn -> pathStore.readEntry(txn, dir)));
+
+        ew.doExecute(txn -> {
+            pathStore.createEntry(txn, dir, dirId);
+            Assertions.assertEquals(dirId, pathStore.readEntry(txn, dir));
+        });
+        Assertions.assertFalse(pathStore.isCachedMissing(dir));
+        Assertions.assertEquals(dirId, (long) ew.doRead(txn -> pathStore.readEntry(txn, dir)));
+        ew.close();
+    }
+
+    @Test
+    void sequentialHandleReadSeesWrites(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs = XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder));
+
+        final int length = 3 * 1024 * 1024 + 77;
+        final int chunkSize = 128 * 1024;
+        final byte[] data = XodusFsTestUtils.makeData(length);
+        final long nodeId =
+                xodusFs.createFileEntry("/file", InodeEntry.newFileEntry().mode());
+        xodusFs.writeFileData(nodeId, ByteBuffer.wrap(data), length, 0);
+
+        // a single read from the start of a file is not sequential access and does not prefetch
+        final StatCounterBundle<XodusFsImpl.ReadAheadStats> stats = ((XodusFsImpl) xodusFs).readAheadStats();
+        try (final FileHandle fileHandle = xodusFs.openHandle(nodeId)) {
+            fileHandle.read(ByteBuffer.allocate(1000), 1000, 0);
+        }
+        Assertions.assertEquals(0, stats.get(XodusFsImpl.ReadAheadStats.readAheadMisses));
+
+        try (final FileHandle fileHandle = xodusFs.openHandle(nodeId)) {
+            final ByteBuffer output = ByteBuffer.allocate(length);
+            for (long offset = 0; offset < length; offset += chunkSize) {
+                if (offset == 2L * chunkSize) {
+                    // change data the handle has likely prefetched already
+                    final byte[] changed = XodusFsTestUtils.makeData(chunkSize);
+                    xodusFs.writeFileData(nodeId, ByteBuffer.wrap(changed), chunkSize, 3L * chunkSize);
+                    System.arraycopy(changed, 0, data, 3 * chunkSize, chunkSize);
+                }
+                final int expected = (int) Math.min(chunkSize, length - offset);
+                Assertions.assertEquals(
+                        expected, fileHandle.read(output.slice((int) offset, expected), chunkSize, offset));
+            }
+            Assertions.assertArrayEquals(data, output.array());
+            Assertions.assertTrue(stats.get(XodusFsImpl.ReadAheadStats.readAheadHits) > 0);
+
+            final ByteBuffer randomRead = ByteBuffer.allocate(1000);
+            fileHandle.read(randomRead, 1000, 12345);
+            Assertions.assertArrayEquals(Arrays.copyOfRange(data, 12345, 13345), randomRead.array());
+        }
+    }
+
+    @Test
+    void writeBackCoalescesSmallWrites(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs =
+                XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder, params -> params.withWriteBackBytes(64 * 1024)));
+        final StatCounterBundle<XodusFsImpl.WriteBackStats> stats = ((XodusFsImpl) xodusFs).writeBackStats();
+
+        final int writeSize = 1000;
+        final int writeCount = 100;
+        final byte[] data = XodusFsTestUtils.makeData(writeSize * writeCount);
+        final long nodeId =
+                xodusFs.createFileEntry("/file", InodeEntry.newFileEntry().mode());
+
+        try (final FileHandle fileHandle = xodusFs.openHandle(nodeId)) {
+            for (int i = 0; i < writeCount; i++) {
+                Assertions.assertEquals(
+                        writeSize,
+                        fileHandle.write(
+                                ByteBuffer.wrap(data, i * writeSize, writeSize), writeSize, (long) i * writeSize));
+            }
+
+            // 100 writes of 1000 bytes with a 64k buffer commit once at the threshold
+            Assertions.assertEquals(writeCount, stats.get(XodusFsImpl.WriteBackStats.writeBackBufferedWrites));
+            Assertions.assertEquals(1, stats.get(XodusFsImpl.WriteBackStats.writeBackCommits));
+            Assertions.assertEquals(data.length, xodusFs.fileLength("/file"));
+
+            final ByteBuffer buffered = ByteBuffer.allocate(writeSize);
+            Assertions.assertEquals(
+                    writeSize, fileHandle.read(buffered, writeSize, (long) (writeCount - 1) * writeSize));
+            Assertions.assertArrayEquals(
+                    Arrays.copyOfRange(data, data.length - writeSize, data.length), buffered.array());
+            Assertions.assertEquals(1, stats.get(XodusFsImpl.WriteBackStats.writeBackReadHits));
+
+            // a read outside the pending extent commits it first
+            final ByteBuffer all = ByteBuffer.allocate(data.length);
+            Assertions.assertEquals(data.length, xodusFs.read("/file", all, data.length, 0));
+            Assertions.assertArrayEquals(data, all.array());
+            Assertions.assertEquals(2, stats.get(XodusFsImpl.WriteBackStats.writeBackCommits));
+
+            // a non-adjacent write commits the pending extent before starting a new one
+            fileHandle.write(ByteBuffer.wrap(data, 0, 10), 10, 0);
+            fileHandle.write(ByteBuffer.wrap(data, 0, 10), 10, data.length + 100);
+            Assertions.assertEquals(3, stats.get(XodusFsImpl.WriteBackStats.writeBackCommits));
+            Assertions.assertEquals(data.length + 110, xodusFs.fileLength("/file"));
+
+            fileHandle.flush();
+            Assertions.assertEquals(4, stats.get(XodusFsImpl.WriteBackStats.writeBackCommits));
+            Assertions.assertEquals(data.length + 110, xodusFs.fileLength("/file"));
+            Assertions.assertFalse(((XodusFsImpl) xodusFs).hasWriteBack(nodeId));
+        }
+    }
+
+    @Test
+    void lostWriteBackIsReported(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs =
+                XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder, params -> params.withWriteBackBytes(64 * 1024)));
+        final long nodeId =
+                xodusFs.createFileEntry("/file", InodeEntry.newFileEntry().mode());
+        final byte[] data = XodusFsTestUtils.makeData(10);
+
+        try (final FileHandle fileHandle = xodusFs.openHandle(nodeId)) {
+            // accepted into the buffer, but past the largest page index the store can address
+            fileHandle.write(ByteBuffer.wrap(data), data.length, 1L << 50);
+
+            // the non-adjacent write commits the pending extent, which fails
+            Assertions.assertThrows(
+                    RuntimeException.class, () -> fileHandle.write(ByteBuffer.wrap(data), data.length, 0));
+            Assertions.assertEquals(0, xodusFs.fileLength("/file"));
+
+            // the loss is reported once more by the next commit of the file
+            final FileOpException e = Assertions.assertThrows(FileOpException.class, fileHandle::commit);
+            Assertions.assertEquals(FileOpError.IO_ERROR, e.getError());
+            fileHandle.commit();
+        }
+
+        xodusFs.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Durability.class)
+    void syncAndReopen(final Durability durability, @TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(
+                tempFolder, params -> params.withDurability(durability).withWriteBackBytes(64 * 1024));
+        final RuntimeParameters runtimeParameters = ew.runtimeParameters();
+
+        final byte[] data = XodusFsTestUtils.makeData(10_000);
+        try (final XodusFs xodusFs = XodusFsUtils.open(ew)) {
+            final long nodeId =
+                    xodusFs.createFileEntry("/file", InodeEntry.newFileEntry().mode());
+            try (final FileHandle fileHandle = xodusFs.openHandle(nodeId)) {
+                fileHandle.write(ByteBuffer.wrap(data), data.length, 0);
+                fileHandle.flush();
+            }
+            xodusFs.sync();
+        }
+
+        try (final XodusFs xodusFs = XodusFsUtils.open(EnvironmentWrapper.forConfig(runtimeParameters))) {
+            final ByteBuffer output = ByteBuffer.allocate(data.length);
+            Assertions.assertEquals(data.length, xodusFs.read("/file", output, data.length, 0));
+            Assertions.assertArrayEquals(data, output.array());
+        }
+    }
+
+    @Test
+    void syncOnlyWhenCommitted(@TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(
+                tempFolder, params -> params.withDurability(Durability.flush).withWriteBackBytes(64 * 1024));
+        final XodusFs xodusFs = XodusFsUtils.open(ew);
+        final long nodeId =
+                xodusFs.createFileEntry("/file", InodeEntry.newFileEntry().mode());
+        xodusFs.sync();
+        final long syncsBefore = ew.commitStats().get(EnvironmentWrapper.CommitStats.syncs);
+
+        try (final FileHandle fileHandle = xodusFs.openHandle(nodeId)) {
+            // nothing was committed since the last sync
+            fileHandle.flush();
+            xodusFs.sync();
+            Assertions.assertEquals(syncsBefore, ew.commitStats().get(EnvironmentWrapper.CommitStats.syncs));
+
+            // committing buffered writes does not sync
+            fileHandle.write(ByteBuffer.wrap(XodusFsTestUtils.makeData(100)), 100, 0);
+            fileHandle.commit();
+            Assertions.assertEquals(syncsBefore, ew.commitStats().get(EnvironmentWrapper.CommitStats.syncs));
+
+            fileHandle.flush();
+            fileHandle.flush();
+            Assertions.assertEquals(syncsBefore + 1, ew.commitStats().get(EnvironmentWrapper.CommitStats.syncs));
+        }
+        xodusFs.close();
+    }
+
+    @Test
+    void readonlySnapshotReads(@TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(tempFolder);
+        final RuntimeParameters runtimeParameters = ew.runtimeParameters();
+
+        final byte[] data = XodusFsTestUtils.makeData(100_000);
+        try (final XodusFs xodusFs = XodusFsUtils.open(ew)) {
+            xodusFs.createDirectoryEntry("/dir", InodeEntry.newDirectoryEntry().mode());
+            xodusFs.createFileEntry("/dir/file", InodeEntry.newFileEntry().mode());
+            xodusFs.writeFileData("/dir/file", ByteBuffer.wrap(data), data.length, 0);
+        }
+
+        try (final XodusFs xodusFs =
+                XodusFsUtils.open(EnvironmentWrapper.forConfig(runtimeParameters.withReadonly(true)))) {
+            final ExecutorService executor = Executors.newFixedThreadPool(4);
+            final List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    Assertions.assertEquals(data.length, xodusFs.fileLength("/dir/file"));
+                    Assertions.assertEquals(1, xodusFs.readDirectory("/dir").size());
+                    final ByteBuffer output = ByteBuffer.allocate(data.length);
+                    xodusFs.read("/dir/file", output, data.length, 0);
+                    return output.array();
+                }));
+            }
+            for (final Future<byte[]> future : futures) {
+                Assertions.assertArrayEquals(data, future.get());
+            }
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void modificationTimesAreDeferred(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs = XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder));
+        final EnvironmentWrapper ew = ((XodusFsImpl) xodusFs).environmentWrapper();
+
+        xodusFs.createDirectoryEntry("/dir", InodeEntry.newDirectoryEntry().mode());
+        xodusFs.sync();
+        final long dirId = xodusFs.lookup("/dir");
+        final Instant dirMtime = xodusFs.readAttrs("/dir").orElseThrow().mTime();
+
+        Thread.sleep(5);
+        final long fileId =
+                xodusFs.createFileEntry("/dir/file", InodeEntry.newFileEntry().mode());
+        final Instant fileMtime = xodusFs.readAttrs("/dir/file").orElseThrow().mTime();
+        Thread.sleep(5);
+        xodusFs.writeFileData(fileId, ByteBuffer.wrap(XodusFsTestUtils.makeData(100)), 100, 0);
+
+        // readers see the new times while the stored entries are unchanged
+        final Instant newDirMtime = xodusFs.readAttrs("/dir").orElseThrow().mTime();
+        final Instant newFileMtime =
+                xodusFs.stat("/dir/file").orElseThrow().inodeEntry().mTime();
+        Assertions.assertTrue(newDirMtime.isAfter(dirMtime));
+        Assertions.assertTrue(newFileMtime.isAfter(fileMtime));
+        Assertions.assertEquals(dirMtime, storedMtime(ew, dirId));
+        Assertions.assertEquals(fileMtime, storedMtime(ew, fileId));
+
+        xodusFs.sync();
+        Assertions.assertEquals(newDirMtime, storedMtime(ew, dirId));
+        Assertions.assertEquals(newFileMtime, storedMtime(ew, fileId));
+
+        // explicitly set times are not overwritten by a deferred update
+        xodusFs.writeFileData(fileId, ByteBuffer.wrap(XodusFsTestUtils.makeData(100)), 100, 100);
+        final InodeEntry fileEntry = xodusFs.readAttrs("/dir/file").orElseThrow();
+        final Instant explicitMtime = Instant.ofEpochSecond(1_000_000);
+        xodusFs.writeAttrs("/dir/file", fileEntry.withAtimeMtime(fileEntry.aTime(), explicitMtime));
+        xodusFs.sync();
+        Assertions.assertEquals(
+                explicitMtime, xodusFs.readAttrs("/dir/file").orElseThrow().mTime());
+        Assertions.assertEquals(explicitMtime, storedMtime(ew, fileId));
+        xodusFs.close();
+    }
+
+    @Test
+    void explicitMtimeSurvivesBufferedWrites(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs =
+                XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder, params -> params.withWriteBackBytes(64 * 1024)));
+        final EnvironmentWrapper ew = ((XodusFsImpl) xodusFs).environmentWrapper();
+        final long nodeId =
+                xodusFs.createFileEntry("/file", InodeEntry.newFileEntry().mode());
+        final Instant createMtime = xodusFs.readAttrs("/file").orElseThrow().mTime();
+        final byte[] data = XodusFsTestUtils.makeData(100);
+
+        try (final FileHandle fileHandle = xodusFs.openHandle(nodeId)) {
+            Thread.sleep(5);
+            fileHandle.write(ByteBuffer.wrap(data), data.length, 0);
+            Assertions.assertTrue(((XodusFsImpl) xodusFs).hasWriteBack(nodeId));
+
+            // the accepted write is visible in the modification time before it is committed
+            final InodeEntry fileEntry = xodusFs.readAttrs("/file").orElseThrow();
+            Assertions.assertTrue(fileEntry.mTime().isAfter(createMtime));
+
+            // the buffered write is committed first, so it does not replace the explicitly set time
+            final Instant explicitMtime = Instant.ofEpochSecond(1_000_000);
+            xodusFs.writeAttrs("/file", fileEntry.withAtimeMtime(fileEntry.aTime(), explicitMtime));
+            Assertions.assertFalse(((XodusFsImpl) xodusFs).hasWriteBack(nodeId));
+            fileHandle.commit();
+
+            Assertions.assertEquals(
+                    explicitMtime, xodusFs.readAttrs("/file").orElseThrow().mTime());
+            Assertions.assertEquals(explicitMtime, storedMtime(ew, nodeId));
+            Assertions.assertEquals(data.length, xodusFs.fileLength("/file"));
+        }
+
+        xodusFs.close();
+    }
+
+    @Test
+    void queuedMtimePersistKeepsExplicitMtime(@TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(tempFolder);
+        final XodusFsImpl xodusFs = (XodusFsImpl) XodusFsUtils.open(ew);
+        final long nodeId =
+                xodusFs.createFileEntry("/file", InodeEntry.newFileEntry().mode());
+        xodusFs.writeFileData(nodeId, ByteBuffer.wrap(XodusFsTestUtils.makeData(100)), 100, 0);
+        final InodeEntry fileEntry = xodusFs.readAttrs("/file").orElseThrow();
+        final Instant explicitMtime = Instant.ofEpochSecond(1_000_000);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        final CountDownLatch holding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            // a mutation that holds the write lock, so the explicit update commits in one batch ahead of a persist
+            // that captured the deferred time before it
+            final Future<?> holder = executor.submit(() -> {
+                ew.doExecute(txn -> {
+                    holding.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                return null;
+            });
+            holding.await();
+
+            final Future<?> update = executor.submit(() -> {
+                xodusFs.writeAttrs("/file", fileEntry.withAtimeMtime(fileEntry.aTime(), explicitMtime));
+                return null;
+            });
+            awaitPendingMutations(ew, 1);
+            final Future<?> persist = executor.submit(() -> {
+                xodusFs.persistDirtyMtimes();
+                return null;
+            });
+            awaitPendingMutations(ew, 2);
+            release.countDown();
+
+            holder.get();
+            update.get();
+            persist.get();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(explicitMtime, storedMtime(ew, nodeId));
+        Assertions.assertEquals(
+                explicitMtime, xodusFs.readAttrs("/file").orElseThrow().mTime());
+        xodusFs.close();
+    }
+
+    private static Instant storedMtime(final EnvironmentWrapper ew, final long nodeId) throws FileOpException {
+        return ew.doRead(txn -> InodeEntry.fromByteIterable(
+                        ew.getStore(XodusStore.INODE).get(txn, InodeId.inodeIdToByteIterable(nodeId)))
+                .mTime());
+    }
+
+    @Test
+    void fallocateModes(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs = XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder));
+        final long fileId =
+                xodusFs.createFileEntry("/file", InodeEntry.newFileEntry().mode());
+        final byte[] data = XodusFsTestUtils.makeData(10_000);
+        xodusFs.writeFileData(fileId, ByteBuffer.wrap(data), data.length, 0);
+
+        xodusFs.fallocate(fileId, 0, 0, 50_000);
+        Assertions.assertEquals(50_000, xodusFs.fileLength("/file"));
+        xodusFs.fallocate(fileId, XodusFs.FALLOCATE_KEEP_SIZE, 0, 100_000);
+        Assertions.assertEquals(50_000, xodusFs.fileLength("/file"));
+
+        xodusFs.fallocate(fileId, XodusFs.FALLOCATE_PUNCH_HOLE | XodusFs.FALLOCATE_KEEP_SIZE, 100, 1000);
+        Arrays.fill(data, 100, 1100, (byte) 0);
+        final ByteBuffer buffer = ByteBuffer.allocate(data.length);
+        xodusFs.read(fileId, buffer, data.length, 0);
+        Assertions.assertArrayEquals(data, buffer.array());
+        Assertions.assertEquals(50_000, xodusFs.fileLength("/file"));
+
+        final FileOpException unsupported = Assertions.assertThrows(
+                FileOpException.class, () -> xodusFs.fallocate(fileId, XodusFs.FALLOCATE_PUNCH_HOLE, 0, 100));
+        Assertions.assertEquals(FileOpError.NOT_SUPPORTED, unsupported.getError());
+        final FileOpException invalid =
+                Assertions.assertThrows(FileOpException.class, () -> xodusFs.fallocate(fileId, 0, 0, 0));
+        Assertions.assertEquals(FileOpError.INVALID_ARGUMENT, invalid.getError());
+        xodusFs.close();
+    }
+
+    @Test
+    void copyFileRangeSharesPages(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs = XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder));
+        final long sourceId =
+                xodusFs.createFileEntry("/source", InodeEntry.newFileEntry().mode());
+        final long targetId =
+                xodusFs.createFileEntry("/target", InodeEntry.newFileEntry().mode());
+        final byte[] data = XodusFsTestUtils.makeData(100_000);
+        xodusFs.writeFileData(sourceId, ByteBuffer.wrap(data), data.length, 0);
+
+        Assertions.assertEquals(data.length, xodusFs.copyFileRange(sourceId, 0, targetId, 0, 1_000_000));
+        Assertions.assertEquals(data.length, xodusFs.fileLength("/target"));
+
+        final byte[] update = XodusFsTestUtils.makeData(1000);
+        xodusFs.writeFileData(targetId, ByteBuffer.wrap(update), update.length, 5000);
+        final byte[] expectedTarget = Arrays.copyOf(data, data.length);
+        System.arraycopy(update, 0, expectedTarget, 5000, update.length);
+
+        final ByteBuffer targetBuffer = ByteBuffer.allocate(data.length);
+        xodusFs.read(targetId, targetBuffer, data.length, 0);
+        Assertions.assertArrayEquals(expectedTarget, targetBuffer.array());
+        final ByteBuffer sourceBuffer = ByteBuffer.allocate(data.length);
+        xodusFs.read(sourceId, sourceBuffer, data.length, 0);
+        Assertions.assertArrayEquals(data, sourceBuffer.array());
+
+        final FileOpException overlap = Assertions.assertThrows(
+                FileOpException.class, () -> xodusFs.copyFileRange(sourceId, 0, sourceId, 100, 1000));
+        Assertions.assertEquals(FileOpError.INVALID_ARGUMENT, overlap.getError());
+        xodusFs.close();
+    }
+
+    @Test
+    void statReadsAttributesAndLength(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs = XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder));
+
+        xodusFs.createDirectoryEntry("/dir", InodeEntry.newDirectoryEntry().mode());
+        final long fileId =
+                xodusFs.createFileEntry("/dir/file", InodeEntry.newFileEntry().mode());
+        xodusFs.writeFileData(fileId, ByteBuffer.wrap(XodusFsTestUtils.makeData(4321)), 4321, 0);
+
+        final FileStat fileStat = xodusFs.stat("/dir/file").orElseThrow();
+        Assertions.assertEquals(fileId, fileStat.nodeId());
+        Assertions.assertEquals(4321, fileStat.length());
+        Assertions.assertEquals(xodusFs.readAttrs("/dir/file").orElseThrow(), fileStat.inodeEntry());
+
+        final FileStat dirStat = xodusFs.stat("/dir").orElseThrow();
+        Assertions.assertTrue(dirStat.inodeEntry().isDirectory());
+        Assertions.assertEquals(0, dirStat.length());
+
+        Assertions.assertTrue(xodusFs.stat("/dir/missing").isEmpty());
+        Assertions.assertTrue(xodusFs.stat("/missing/file").isEmpty());
+        xodusFs.close();
+    }
+
     @Test
     void simpleCreateWriteDelete(@TempDir Path tempFolder) throws Exception {
         final XodusFs xodusFs = XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder));
@@ -118,4 +655,389 @@ public class XodusFsTest {
             Assertions.assertEquals(expectedSubPaths, dirListingStream.toList());
         }
     }
+
+    @Test
+    void readDirectory(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs = XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder));
+
+        xodusFs.createDirectoryEntry("/dir", InodeEntry.newDirectoryEntry().mode());
+        xodusFs.createDirectoryEntry("/dir/sub", InodeEntry.newDirectoryEntry().mode());
+        final long fileId =
+                xodusFs.createFileEntry("/dir/file", InodeEntry.newFileEntry().mode());
+        xodusFs.writeFileData(fileId, ByteBuffer.wrap(XodusFsTestUtils.makeData(1234)), 1234, 0);
+
+        final List<DirectoryEntry> entries = xodusFs.readDirectory("/dir");
+        Assertions.assertEquals(2, entries.size());
+
+        final DirectoryEntry fileEntry = entries.stream()
+                .filter(e -> e.name().equals("file"))
+                .findFirst()
+                .orElseThrow();
+        Assertions.assertEquals(fileId, fileEntry.nodeId());
+        Assertions.assertTrue(fileEntry.inodeEntry().isFile());
+        Assertions.assertEquals(1234, fileEntry.length());
+
+        final DirectoryEntry dirEntry =
+                entries.stream().filter(e -> e.name().equals("sub")).findFirst().orElseThrow();
+        Assertions.assertTrue(dirEntry.inodeEntry().isDirectory());
+    }
+
+    @Test
+    void readDirectoryResume(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs = XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder));
+
+        xodusFs.createDirectoryEntry("/dir", InodeEntry.newDirectoryEntry().mode());
+        final int fileCount = 50;
+        for (int i = 0; i < fileCount; i++) {
+            xodusFs.createFileEntry("/dir/file" + i, InodeEntry.newFileEntry().mode());
+        }
+
+        final Set<String> names = new HashSet<>();
+        long cookie = 0;
+        boolean removed = false;
+        while (true) {
+            final List<DirectoryEntry> page = xodusFs.readDirectory("/dir", cookie, 7);
+            for (final DirectoryEntry entry : page) {
+                Assertions.assertTrue(entry.nodeId() > cookie);
+                Assertions.assertTrue(names.add(entry.name()));
+                cookie = entry.nodeId();
+            }
+            if (!removed) {
+                // removing an already listed entry must not shift the remaining listing
+                xodusFs.removeFileEntry("/dir/" + page.getFirst().name());
+                removed = true;
+            }
+            if (page.size() < 7) {
+                break;
+            }
+        }
+
+        Assertions.assertEquals(fileCount, names.size());
+        Assertions.assertEquals(fileCount - 1, xodusFs.readDirectory("/dir").size());
+        Assertions.assertTrue(xodusFs.readDirectory("/dir", cookie, 7).isEmpty());
+    }
+
+    @Test
+    void upgradeBuildsPathNameIndex(@TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(tempFolder);
+        final RuntimeParameters runtimeParameters = ew.runtimeParameters();
+        final long fileId;
+        try (final XodusFs xodusFs = XodusFsUtils.open(ew)) {
+            xodusFs.createDirectoryEntry("/dir", InodeEntry.newDirectoryEntry().mode());
+            fileId = xodusFs.createFileEntry(
+                    "/dir/file", InodeEntry.newFileEntry().mode());
+
+            // reduce the db to its version 1 layout, which has no name index
+            final int pageSize = ew.readXodusFsParams().orElseThrow().pageSize();
+            ew.doExecute(txn -> {
+                try (final Cursor cursor = ew.getStore(XodusStore.PATH_NAME).openCursor(txn)) {
+                    while (cursor.getNext()) {
+                        cursor.deleteCurrent();
+                    }
+                }
+                ew.writeXodusFsParams(txn, new StoredInternalEnvParams(1, pageSize));
+            });
+        }
+
+        try (final XodusFs xodusFs = XodusFsUtils.open(EnvironmentWrapper.forConfig(runtimeParameters))) {
+            Assertions.assertEquals(fileId, xodusFs.lookup("/dir/file"));
+            Assertions.assertEquals(1, xodusFs.readDirectory("/dir").size());
+        }
+
+        final EnvironmentWrapper reopened = EnvironmentWrapper.forConfig(runtimeParameters);
+        Assertions.assertEquals(
+                XodusFs.VERSION, reopened.readXodusFsParams().orElseThrow().version());
+        reopened.close();
+    }
+
+    @Test
+    void upgradeRewritesLegacyInodeEntries(@TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(tempFolder);
+        final RuntimeParameters runtimeParameters = ew.runtimeParameters();
+        final long fileId;
+        final InodeEntry fileEntry;
+        try (final XodusFs xodusFs = XodusFsUtils.open(ew)) {
+            fileId = xodusFs.createFileEntry("/file", InodeEntry.newFileEntry().mode());
+            fileEntry = xodusFs.readAttrs("/file").orElseThrow();
+
+            // reduce the db to its version 2 layout, which stores inode entries as json
+            final int pageSize = ew.readXodusFsParams().orElseThrow().pageSize();
+            ew.doExecute(txn -> {
+                final Store store = ew.getStore(XodusStore.INODE);
+                store.put(txn, InodeId.inodeIdToByteIterable(fileId), fileEntry.toLegacyByteIterable());
+                ew.writeXodusFsParams(txn, new StoredInternalEnvParams(2, pageSize));
+            });
+        }
+
+        try (final XodusFs xodusFs = XodusFsUtils.open(EnvironmentWrapper.forConfig(runtimeParameters))) {
+            Assertions.assertEquals(
+                    InodeEntry.fromByteIterable(fileEntry.toLegacyByteIterable()),
+                    xodusFs.readAttrs("/file").orElseThrow());
+            final EnvironmentWrapper upgraded = ((XodusFsImpl) xodusFs).environmentWrapper();
+            upgraded.doRead(txn -> {
+                final ByteIterable stored =
+                        upgraded.getStore(XodusStore.INODE).get(txn, InodeId.inodeIdToByteIterable(fileId));
+                Assertions.assertEquals(1, stored.getBytesUnsafe()[0]);
+                return null;
+            });
+        }
+    }
+
+    @Test
+    void upgradeRewritesLegacyPathRecords(@TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(tempFolder);
+        final RuntimeParameters runtimeParameters = ew.runtimeParameters();
+        final long dirId;
+        try (final XodusFs xodusFs = XodusFsUtils.open(ew)) {
+            xodusFs.createDirectoryEntry("/dir", InodeEntry.newDirectoryEntry().mode());
+            dirId = xodusFs.lookup("/dir");
+            for (int i = 0; i < 20; i++) {
+                xodusFs.createFileEntry(
+                        "/dir/file" + i, InodeEntry.newFileEntry().mode());
+            }
+
+            // reduce the db to its version 3 layout, which stores path records as strings
+            final int pageSize = ew.readXodusFsParams().orElseThrow().pageSize();
+            ew.doExecute(txn -> {
+                final Store store = ew.getStore(XodusStore.PATH);
+                final List<PathRecord> records = new ArrayList<>();
+                try (final Stream<Map.Entry<ByteIterable, ByteIterable>> entries =
+                        ew.allEntriesForKey(txn, XodusStore.PATH, InodeId.inodeIdToByteIterable(dirId))) {
+                    entries.forEach(entry -> records.add(PathRecord.fromByteIterable(entry.getValue())));
+                }
+                store.delete(txn, InodeId.inodeIdToByteIterable(dirId));
+                records.forEach(
+                        record -> store.put(txn, InodeId.inodeIdToByteIterable(dirId), record.toLegacyByteIterable()));
+                ew.writeXodusFsParams(txn, new StoredInternalEnvParams(3, pageSize));
+            });
+        }
+
+        try (final XodusFs xodusFs = XodusFsUtils.open(EnvironmentWrapper.forConfig(runtimeParameters))) {
+            final List<DirectoryEntry> entries = xodusFs.readDirectory("/dir");
+            Assertions.assertEquals(20, entries.size());
+            final List<DirectoryEntry> resumed =
+                    xodusFs.readDirectory("/dir", entries.get(9).nodeId(), Integer.MAX_VALUE);
+            Assertions.assertEquals(entries.subList(10, 20), resumed);
+
+            xodusFs.removeFileEntry("/dir/file3");
+            xodusFs.rename("/dir/file4", "/dir/renamed");
+            Assertions.assertEquals(19, xodusFs.readDirectory("/dir").size());
+            Assertions.assertTrue(xodusFs.readAttrs("/dir/renamed").isPresent());
+        }
+    }
+
+    @Test
+    void inodeIdsResumeAfterLostReservation(@TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(tempFolder);
+        final RuntimeParameters runtimeParameters = ew.runtimeParameters();
+        final Set<Long> ids = new HashSet<>();
+        long highestId = 0;
+        try (final XodusFs xodusFs = XodusFsUtils.open(ew)) {
+            for (int i = 0; i < 50; i++) {
+                final long id = xodusFs.createFileEntry(
+                        "/file" + i, InodeEntry.newFileEntry().mode());
+                Assertions.assertTrue(ids.add(id));
+                highestId = Math.max(highestId, id);
+            }
+
+            // the stored reservation covers every issued id
+            final long reservedThrough = ew.doRead(txn -> InodeId.byteIterableToInodeId(
+                    ew.getStore(XodusStore.INODE_META).get(txn, InodeIdIssuer.ID_COUNTER)));
+            Assertions.assertTrue(reservedThrough >= highestId);
+
+            // simulate a reservation lost in a crash
+            ew.doExecute(txn -> ew.getStore(XodusStore.INODE_META).delete(txn, InodeIdIssuer.ID_COUNTER));
+        }
+
+        try (final XodusFs xodusFs = XodusFsUtils.open(EnvironmentWrapper.forConfig(runtimeParameters))) {
+            final long id =
+                    xodusFs.createFileEntry("/after", InodeEntry.newFileEntry().mode());
+            Assertions.assertFalse(ids.contains(id));
+            Assertions.assertTrue(id > highestId);
+        }
+    }
+
+    @Test
+    void concurrentCreateWriteRead(@TempDir Path tempFolder) throws Exception {
+        final XodusFs xodusFs = XodusFsUtils.open(XodusFsTestUtils.makeEnv(tempFolder));
+
+        final int threads = 8;
+        final int filesPerThread = 20;
+        final int length = 70_000;
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final String dirName = "/dir" + t;
+                futures.add(executorService.submit(() -> {
+                    xodusFs.createDirectoryEntry(
+                            dirName, InodeEntry.newDirectoryEntry().mode());
+                    for (int i = 0; i < filesPerThread; i++) {
+                        final String fileName = dirName + "/file" + i;
+                        final byte[] data = XodusFsTestUtils.makeData(length);
+                        xodusFs.createFileEntry(
+                                fileName, InodeEntry.newFileEntry().mode());
+                        xodusFs.writeFileData(fileName, ByteBuffer.wrap(data), length, 0);
+
+                        final ByteBuffer fileContents = ByteBuffer.allocate(length);
+                        xodusFs.read(fileName, fileContents, length, 0);
+                        Assertions.assertArrayEquals(data, fileContents.array());
+                        Assertions.assertEquals(length, xodusFs.fileLength(fileName));
+                    }
+                    return null;
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        try (final Stream<String> dirListingStream = xodusFs.directoryListing("/")) {
+            Assertions.assertEquals(threads, dirListingStream.count());
+        }
+        for (int t = 0; t < threads; t++) {
+            try (final Stream<String> dirListingStream = xodusFs.directoryListing("/dir" + t)) {
+                Assertions.assertEquals(filesPerThread, dirListingStream.count());
+            }
+        }
+    }
+
+    @Test
+    void groupCommitRerunKeepsCachesConsistent(@TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(tempFolder);
+        final RuntimeParameters runtimeParameters = ew.runtimeParameters();
+        final XodusFs xodusFs = XodusFsUtils.open(ew);
+        final long rerunsBefore = ew.commitStats().get(EnvironmentWrapper.CommitStats.groupCommitReruns);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final CountDownLatch holding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            // a mutation that holds the write lock, so the next three are queued and committed as one batch
+            final Future<?> holder = executor.submit(() -> {
+                ew.doExecute(txn -> {
+                    holding.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                return null;
+            });
+            holding.await();
+
+            final List<Future<?>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> {
+                xodusFs.createDirectoryEntry(
+                        "/a", InodeEntry.newDirectoryEntry().mode());
+                return null;
+            }));
+            awaitPendingMutations(ew, 1);
+            futures.add(executor.submit(() ->
+                    xodusFs.createFileEntry("/a/f", InodeEntry.newFileEntry().mode())));
+            awaitPendingMutations(ew, 2);
+            futures.add(executor.submit(() -> {
+                xodusFs.removeFileEntry("/missing");
+                return null;
+            }));
+            awaitPendingMutations(ew, 3);
+            release.countDown();
+
+            holder.get();
+            futures.get(0).get();
+            final long fileId = (long) futures.get(1).get();
+            final ExecutionException e = Assertions.assertThrows(ExecutionException.class, futures.get(2)::get);
+            Assertions.assertInstanceOf(FileOpException.class, e.getCause());
+            Assertions.assertEquals(
+                    rerunsBefore + 1, ew.commitStats().get(EnvironmentWrapper.CommitStats.groupCommitReruns));
+
+            Assertions.assertEquals(fileId, xodusFs.lookup("/a/f"));
+            Assertions.assertEquals(
+                    List.of("a"),
+                    xodusFs.readDirectory("/").stream()
+                            .map(DirectoryEntry::name)
+                            .toList());
+            Assertions.assertEquals(
+                    List.of("f"),
+                    xodusFs.readDirectory("/a").stream()
+                            .map(DirectoryEntry::name)
+                            .toList());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        xodusFs.close();
+
+        try (final XodusFs reopened = XodusFsUtils.open(EnvironmentWrapper.forConfig(runtimeParameters))) {
+            Assertions.assertTrue(reopened.readAttrs("/a").orElseThrow().isDirectory());
+            Assertions.assertTrue(reopened.readAttrs("/a/f").orElseThrow().isFile());
+        }
+    }
+
+    @Test
+    void groupCommitRerunKeepsWrittenData(@TempDir Path tempFolder) throws Exception {
+        final EnvironmentWrapper ew = XodusFsTestUtils.makeEnv(tempFolder);
+        final XodusFs xodusFs = XodusFsUtils.open(ew);
+        final long nodeId =
+                xodusFs.createFileEntry("/file", InodeEntry.newFileEntry().mode());
+        final byte[] data = XodusFsTestUtils.makeData(10_000);
+        final ByteBuffer writeBuffer = ByteBuffer.wrap(data);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        final CountDownLatch holding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            // a mutation that holds the write lock, so the write and the failing remove are committed as one batch
+            final Future<?> holder = executor.submit(() -> {
+                ew.doExecute(txn -> {
+                    holding.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                return null;
+            });
+            holding.await();
+
+            final Future<Integer> write =
+                    executor.submit(() -> xodusFs.writeFileData(nodeId, writeBuffer, data.length, 0));
+            awaitPendingMutations(ew, 1);
+            final Future<?> remove = executor.submit(() -> {
+                xodusFs.removeFileEntry("/missing");
+                return null;
+            });
+            awaitPendingMutations(ew, 2);
+            release.countDown();
+
+            holder.get();
+            Assertions.assertThrows(ExecutionException.class, remove::get);
+
+            // the re-run write still sees the whole buffer, which is consumed once it has committed
+            Assertions.assertEquals(data.length, write.get());
+            Assertions.assertFalse(writeBuffer.hasRemaining());
+            Assertions.assertEquals(data.length, xodusFs.fileLength("/file"));
+            final ByteBuffer readBuffer = ByteBuffer.allocate(data.length);
+            Assertions.assertEquals(data.length, xodusFs.read(nodeId, readBuffer, data.length, 0));
+            Assertions.assertArrayEquals(data, readBuffer.array());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        xodusFs.close();
+    }
+
+    private static void awaitPendingMutations(final EnvironmentWrapper ew, final int count) {
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (ew.pendingMutationCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        Assertions.assertEquals(count, ew.pendingMutationCount());
+    }
 }
@@ -21,6 +21,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.SecureRandom;
 import java.util.UUID;
+import java.util.function.UnaryOperator;
 
 public final class XodusFsTestUtils {
     private static final String PASSWORD = "password";
@@ -29,6 +30,12 @@ public final class XodusFsTestUtils {
     private static final StoredInternalEnvParams XODUS_PARAMS = new StoredInternalEnvParams(XodusFs.VERSION, 32 * 1024);
 
     static EnvironmentWrapper makeEnv(final Path junitTemporaryFolder) throws IOException, JcxfsException {
+        return makeEnv(junitTemporaryFolder, UnaryOperator.identity());
+    }
+
+    static EnvironmentWrapper makeEnv(
+            final Path junitTemporaryFolder, final UnaryOperator<RuntimeParameters> runtimeParameters)
+            throws IOException, JcxfsException {
         final Path testPath = junitTemporaryFolder
                 .resolve("jcxfs-junit-temp-test")
                 .resolve(UUID.randomUUID().toString());
@@ -40,7 +47,7 @@ public final class XodusFsTestUtils {
 
         XodusFsUtils.initXodusFileStore(initParameters);
 
-        final RuntimeParameters xodusFsConfig = RuntimeParameters.basic(testPath, PASSWORD);
+        final RuntimeParameters xodusFsConfig = runtimeParameters.apply(RuntimeParameters.basic(testPath, PASSWORD));
         return EnvironmentWrapper.forConfig(xodusFsConfig);
     }
 